@@ -16,18 +16,28 @@
  
 package com.pingo.ai;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.crt.TcpKeepAliveConfiguration;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.bedrockagentruntime.BedrockAgentRuntimeClient;
 import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 
 @Configuration
+@ImportRuntimeHints(ChatRuntimeHints.class) // Native image (Gson, Bedrock clients)
 public class AwsConfig {
 
 	// Define credentails in application.properties file
@@ -38,27 +48,110 @@ public class AwsConfig {
     @Value("${pingo.cloud.aws.region.static}")
     private String region;
     
+    // HTTP transport, applied to both Bedrock clients (each client gets its own connection pool)
+    @Value("${pingo.cloud.aws.http.client-type:apache}") // apache | crt
+    private String httpClientType;
+    @Value("${pingo.cloud.aws.http.max-connections:50}")
+    private int maxConnections;
+    @Value("${pingo.cloud.aws.http.connection-ttl:5m}") // Apache only, recycle connections (DNS changes)
+    private Duration connectionTtl;
+    @Value("${pingo.cloud.aws.http.connection-max-idle-time:60s}")
+    private Duration connectionMaxIdleTime;
+    @Value("${pingo.cloud.aws.http.use-idle-connection-reaper:true}")
+    private boolean useIdleConnectionReaper;
+    @Value("${pingo.cloud.aws.http.connection-timeout:2s}")
+    private Duration connectionTimeout;
+    @Value("${pingo.cloud.aws.http.connection-acquisition-timeout:10s}") // Apache only
+    private Duration connectionAcquisitionTimeout;
+    @Value("${pingo.cloud.aws.http.socket-timeout:60s}") // Model responses may take several seconds
+    private Duration socketTimeout;
+    @Value("${pingo.cloud.aws.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     public AwsCredentialsProvider awsCredentialsProvider() {
         AwsCredentialsProvider awsCredentialsProvider = StaticCredentialsProvider.create(
                 AwsBasicCredentials.create(accessKey, secretKey));
         return awsCredentialsProvider;
     }
+    
+    public Region awsRegion() {
+    	return Region.of(region);
+    }
+    
+    // Pooled HTTP client. Bean destroy method closes the pool (SDK clients don't close a shared HTTP client)
+    public SdkHttpClient httpClient() {
+    	if ("crt".equalsIgnoreCase(httpClientType)) {
+    		AwsCrtHttpClient.Builder builder = AwsCrtHttpClient.builder()
+    				.maxConcurrency(maxConnections)
+    				.connectionMaxIdleTime(connectionMaxIdleTime)
+    				.connectionTimeout(connectionTimeout);
+    		if (tcpKeepAlive) {
+    			builder.tcpKeepAliveConfiguration(TcpKeepAliveConfiguration.builder()
+    					.keepAliveInterval(Duration.ofSeconds(30))
+    					.keepAliveTimeout(Duration.ofSeconds(5))
+    					.build());
+    		}
+    		return builder.build();
+    	}
+    	return ApacheHttpClient.builder()
+    			.maxConnections(maxConnections)
+    			.connectionTimeToLive(connectionTtl)
+    			.connectionMaxIdleTime(connectionMaxIdleTime)
+    			.useIdleConnectionReaper(useIdleConnectionReaper)
+    			.connectionTimeout(connectionTimeout)
+    			.connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+    			.socketTimeout(socketTimeout)
+    			.tcpKeepAlive(tcpKeepAlive)
+    			.build();
+    }
+    
+    @Bean(destroyMethod = "close")
+    public SdkHttpClient bedrockHttpClient() {
+    	return httpClient();
+    }
+    
+    @Bean(destroyMethod = "close")
+    public SdkHttpClient bedrockAgentHttpClient() {
+    	return httpClient();
+    }
+	
+    @Bean
+    public ConnectionPoolMetrics bedrockPoolMetrics() {
+    	return new ConnectionPoolMetrics("bedrock-runtime", meterRegistry);
+    }
+    
+    @Bean
+    public ConnectionPoolMetrics bedrockAgentPoolMetrics() {
+    	return new ConnectionPoolMetrics("bedrock-agent-runtime", meterRegistry);
+    }
+    
+    // Model access client for a region. Clients of all regions share one connection pool
+    public BedrockRuntimeClient buildBedrockClient(Region clientRegion) {
+    	return BedrockRuntimeClient.builder()
+    			.region(clientRegion)
+    			.credentialsProvider(awsCredentialsProvider())
+    			.httpClient(bedrockHttpClient())
+    			.overrideConfiguration(c -> c.addMetricPublisher(bedrockPoolMetrics()))
+    			.build();
+    }
 	
 	// For Model Access
     @Bean
     public BedrockRuntimeClient bedrockClient() {
-        return BedrockRuntimeClient.builder()
-                .region(Region.of(region))
-                .credentialsProvider(awsCredentialsProvider())
-                .build();
+        return buildBedrockClient(awsRegion());
     }
     
 	// For Model Access through Knowledgebase (RAG)
     @Bean
     public BedrockAgentRuntimeClient bedrockAgentRuntime() {
     	return BedrockAgentRuntimeClient.builder()
-    			.region(Region.of(region))
+    			.region(awsRegion())
     			.credentialsProvider(awsCredentialsProvider())
+    			.httpClient(bedrockAgentHttpClient())
+    			.overrideConfiguration(c -> c.addMetricPublisher(bedrockAgentPoolMetrics()))
     			.build();
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.services.bedrockagentruntime.BedrockAgentRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+
+/**
+ * Pre-open pooled connections to Bedrock endpoints during startup, so that first requests after deployment 
+ * don't pay TCP + TLS handshake cost.
+ * <p>
+ * Runs before application is marked ready to accept traffic (ApplicationStartedEvent). Concurrent unsigned 
+ * requests are sent to the service endpoint; response (403/404) is ignored, connection is returned to pool and kept alive.
+ */
+@Component
+public class BedrockConnectionWarmer {
+
+	@Value("${pingo.cloud.aws.http.prewarm-connections:4}")
+	private int prewarmConnections;
+	@Value("${pingo.cloud.aws.http.prewarm-timeout:5s}")
+	private Duration prewarmTimeout;
+	
+	@Autowired
+	AwsConfig awsConfig;
+	@Autowired
+	@Qualifier("bedrockHttpClient")
+	SdkHttpClient bedrockHttpClient;
+	@Autowired
+	@Qualifier("bedrockAgentHttpClient")
+	SdkHttpClient bedrockAgentHttpClient;
+	
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	@EventListener(ApplicationStartedEvent.class)
+	public void prewarm() {
+		if (prewarmConnections <= 0)
+			return;
+		
+		URI runtimeEndpoint = URI.create("https://" + BedrockRuntimeClient.serviceMetadata().endpointFor(awsConfig.awsRegion()));
+		URI agentEndpoint = URI.create("https://" + BedrockAgentRuntimeClient.serviceMetadata().endpointFor(awsConfig.awsRegion()));
+		
+		// Requests must be concurrent, sequential requests will reuse the same connection
+		ExecutorService executor = Executors.newFixedThreadPool(prewarmConnections * 2);
+		try {
+			List<CompletableFuture<Boolean>> calls = new ArrayList<>();
+			for (int i = 0; i < prewarmConnections; i++) {
+				calls.add(CompletableFuture.supplyAsync(() -> connect(bedrockHttpClient, runtimeEndpoint), executor));
+				calls.add(CompletableFuture.supplyAsync(() -> connect(bedrockAgentHttpClient, agentEndpoint), executor));
+			}
+			CompletableFuture.allOf(calls.toArray(new CompletableFuture[0]))
+					.get(prewarmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+			
+			long opened = calls.stream().filter(CompletableFuture::join).count();
+			logger.info("Pre-warmed {} connections to {} / {}", opened, runtimeEndpoint, agentEndpoint);
+			
+		} catch (Exception e) {
+			// Not fatal, connections will be opened on demand
+			logger.warn("Connection pre-warm incomplete: {}", e.toString());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private boolean connect(SdkHttpClient httpClient, URI endpoint) {
+		SdkHttpFullRequest request = SdkHttpFullRequest.builder()
+				.method(SdkHttpMethod.GET)
+				.uri(endpoint)
+				.build();
+		try {
+			HttpExecuteResponse response = httpClient.prepareRequest(HttpExecuteRequest.builder().request(request).build()).call();
+			// Body must be fully consumed to release connection back to pool
+			if (response.responseBody().isPresent()) {
+				try (InputStream body = response.responseBody().get()) {
+					body.transferTo(OutputStream.nullOutputStream());
+				}
+			}
+			return true;
+			
+		} catch (Exception e) {
+			logger.debug("Pre-warm request failed: {} - {}", endpoint, e.toString());
+			return false;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+
+/**
+ * Bedrock InvokeModel based {@link ModelInvoker}. Clients for secondary regions are created on demand 
+ * and share the HTTP connection pool of the primary client.
+ */
+@Component
+public class BedrockModelInvoker implements ModelInvoker, DisposableBean {
+
+	@Autowired
+	private AwsConfig awsConfig;
+	@Autowired
+	private BedrockRuntimeClient bedrockClient;
+	@Autowired
+	private ChatMetrics chatMetrics;
+	
+	private final Map<String, BedrockRuntimeClient> regionClients = new ConcurrentHashMap<>();
+
+	@Override
+	public byte[] invoke(ModelEndpoint endpoint, byte[] payload) {
+		InvokeModelRequest request = InvokeModelRequest.builder().body(SdkBytes.fromByteArrayUnsafe(payload))
+				.modelId(endpoint.getModelId())
+				.contentType("application/json")
+				.accept("application/json")
+				.overrideConfiguration(o -> o.addMetricPublisher(chatMetrics.sdkPublisher(endpoint.getModelId()))) // queue / model time
+				.build();
+
+		InvokeModelResponse response = client(endpoint.getRegion()).invokeModel(request);
+		return response.body().asByteArrayUnsafe();
+	}
+	
+	private BedrockRuntimeClient client(String region) {
+		if (region.equals(awsConfig.awsRegion().id()))
+			return bedrockClient;
+		return regionClients.computeIfAbsent(region, r -> awsConfig.buildBedrockClient(Region.of(r)));
+	}
+
+	@Override
+	public void destroy() {
+		regionClients.values().forEach(BedrockRuntimeClient::close);
+	}
+}
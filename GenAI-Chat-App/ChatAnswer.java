@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Model answer with citations (RAG). Stored in shared response cache.
+ */
+public class ChatAnswer {
+
+	String text;
+	String modelId;
+	List<Reference> citations = new ArrayList<>();
+	Date createdAt;
+
+	public ChatAnswer() {
+	}
+
+	public ChatAnswer(String text, String modelId) {
+		this.text = text;
+		this.modelId = modelId;
+		this.createdAt = new Date();
+	}
+
+	public String getText() {
+		return text;
+	}
+	public String getModelId() {
+		return modelId;
+	}
+	public List<Reference> getCitations() {
+		return citations;
+	}
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Retrieved reference of a citation (Knowledge Base content and source location)
+	 */
+	public static class Reference {
+		String content;
+		String location;
+
+		public Reference() {
+		}
+
+		public Reference(String content, String location) {
+			this.content = content;
+			this.location = location;
+		}
+
+		public String getContent() {
+			return content;
+		}
+		public String getLocation() {
+			return location;
+		}
+	}
+}
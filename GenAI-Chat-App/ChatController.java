@@ -16,14 +16,41 @@
 
 package com.pingo.ai;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.pingo.ai.ChatScheduler.Priority;
+import com.pingo.ai.ChatScheduler.RejectedException;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Chat end points. Requests are queued through {@link ChatScheduler} for fair access to upstream model capacity.
+ * <p>
+ * Request Headers (optional): 
+ * <p>
+ * X-Tenant-Id - Fairness unit, X-Priority - interactive | batch (default: interactive), 
+ * X-Deadline-Ms - Time budget of the request (up to the priority's default deadline)
+ * <p>
+ * <b>Trust:</b> Tenant and priority headers are honoured only from gateway-addresses (set by the gateway after 
+ * authentication). Direct callers (no gateway, e.g. default setup) are tenants by client address and get 
+ * direct-priority, X-Priority can only lower it to batch. A caller can't pick another tenant or raise itself 
+ * above other callers.
+ */
 @RestController
 @RequestMapping("/ai")
 public class ChatController {
@@ -32,16 +59,68 @@ public class ChatController {
 	ChatModelWrapper chatService;
 	@Autowired
 	ChatRAGModelWrapper chatRAGService;
+	@Autowired
+	ChatScheduler chatScheduler;
+	
+	@Value("${pingo.ai.scheduler.interactive-deadline:30s}")
+	Duration interactiveDeadline;
+	@Value("${pingo.ai.scheduler.batch-deadline:120s}")
+	Duration batchDeadline;
+	@Value("${pingo.ai.scheduler.gateway-addresses:}")
+	List<String> gatewayAddresses;
+	@Value("${pingo.ai.scheduler.direct-priority:interactive}")
+	String directPriority;
 	
 	@GetMapping("/chat")
-	public ResponseEntity<String> chat(@RequestParam("query") String query) {
-		String response = chatService.process(query);
-		return new ResponseEntity<String>(response, HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<String>> chat(@RequestParam("query") String query, HttpServletRequest request,
+			@RequestHeader(name = "X-Tenant-Id", required = false) String tenant,
+			@RequestHeader(name = "X-Priority", required = false) String priority,
+			@RequestHeader(name = "X-Deadline-Ms", required = false) Long deadlineMs) {
+		return schedule(request, tenant, priority, deadlineMs, deadline -> chatService.cached(query, deadline), 
+				() -> chatService.process(query));
 	}
 	
 	@GetMapping("/chat_with_rag")
-	public ResponseEntity<String> chatWithRAG(@RequestParam("query") String query) {
-		String response = chatRAGService.process(query);
-		return new ResponseEntity<String>(response, HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<String>> chatWithRAG(@RequestParam("query") String query, HttpServletRequest request,
+			@RequestHeader(name = "X-Tenant-Id", required = false) String tenant,
+			@RequestHeader(name = "X-Priority", required = false) String priority,
+			@RequestHeader(name = "X-Deadline-Ms", required = false) Long deadlineMs) {
+		return schedule(request, tenant, priority, deadlineMs, deadline -> chatRAGService.cached(query, deadline), 
+				() -> chatRAGService.process(query));
+	}
+	
+	private CompletableFuture<ResponseEntity<String>> schedule(HttpServletRequest request, String tenant, String priority, 
+			Long deadlineMs, LongFunction<CompletableFuture<String>> cached, Supplier<String> work) {
+		boolean gateway = gatewayAddresses.contains(request.getRemoteAddr());
+		String t = gateway && tenant != null && !tenant.isBlank() ? tenant : request.getRemoteAddr();
+		
+		// Direct callers: configured class, may only lower it
+		Priority p = gateway || !"batch".equalsIgnoreCase(directPriority) ? Priority.INTERACTIVE : Priority.BATCH;
+		if ("batch".equalsIgnoreCase(priority))
+			p = Priority.BATCH;
+		
+		// Requested budget within (0, default of the class]
+		long defaultBudget = (p == Priority.BATCH ? batchDeadline : interactiveDeadline).toMillis();
+		long budgetMs = deadlineMs != null ? Math.min(Math.max(deadlineMs, 1), defaultBudget) : defaultBudget;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+		
+		// Tomcat thread is released while request waits for a shared answer or in queue (async response). 
+		// Cache hits don't take an upstream slot
+		Priority cls = p;
+		return cached.apply(deadline)
+				.thenCompose(answer -> answer != null ? CompletableFuture.completedFuture(answer) 
+						: chatScheduler.submit(t, cls, deadline, work))
+				.thenApply(response -> new ResponseEntity<String>(response, HttpStatus.OK))
+				.exceptionally(e -> {
+					Throwable cause = e.getCause() != null ? e.getCause() : e;
+					if (cause instanceof RejectedException) {
+						HttpStatus status = "queue-full".equals(((RejectedException) cause).getReason()) 
+								? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+						return new ResponseEntity<String>(cause.getMessage(), status);
+					}
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					throw new IllegalStateException(cause);
+				});
 	}
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * Chat endpoint instrumentation (Micrometer). Exposed through Actuator - /actuator/metrics/{name}
+ * <p>
+ * <b>Metrics:</b>
+ * <p>
+ * pingo.ai.upstream.latency{model, stage=queue|model} - Time waiting for upstream capacity / time spent in Bedrock
+ * <p>
+ * pingo.ai.tokens{model, type=input|output} - Token usage
+ * <p>
+ * pingo.ai.cost.estimated{model} - Estimated cost (USD) based on configured per 1K token price
+ * <p>
+ * pingo.ai.stop{model, reason} - Stop reason of responses (frequent "max_tokens" means max_tokens is too low)
+ * <p>
+ * pingo.ai.rag.retrieval{model} - Knowledge Base retrieve and generate time (end to end, split into 
+ * pingo.ai.upstream.latency stages as well)
+ * <p>
+ * pingo.ai.rag.citations{model}, pingo.ai.rag.references{model} - Citations and retrieved references per response
+ */
+@Component
+public class ChatMetrics {
+
+	// Price per 1K tokens (USD): model id -> {input, output}
+	private static final Map<String, double[]> DEFAULT_PRICING = Map.of(
+			"anthropic.claude-3-haiku-20240307-v1:0", new double[] { 0.00025, 0.00125 },
+			"anthropic.claude-3-sonnet-20240229-v1:0", new double[] { 0.003, 0.015 },
+			"anthropic.claude-3-5-sonnet-20240620-v1:0", new double[] { 0.003, 0.015 });
+
+	private final MeterRegistry meterRegistry;
+	private final Map<String, double[]> pricing = new HashMap<>(DEFAULT_PRICING);
+	private final Map<String, MetricPublisher> sdkPublishers = new ConcurrentHashMap<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param pricingOverrides Comma separated model-id=input-price/output-price (per 1K tokens)
+	 */
+	public ChatMetrics(MeterRegistry meterRegistry, @Value("${pingo.ai.pricing:}") String pricingOverrides) {
+		this.meterRegistry = meterRegistry;
+		for (String entry : pricingOverrides.split(",")) {
+			int eq = entry.lastIndexOf('=');
+			int slash = entry.lastIndexOf('/');
+			if (eq < 0 || slash < eq) {
+				if (!entry.isBlank())
+					logger.warn("Invalid pricing entry (model-id=input/output): {}", entry);
+				continue;
+			}
+			pricing.put(entry.substring(0, eq).trim(), new double[] {
+					Double.parseDouble(entry.substring(eq + 1, slash).trim()),
+					Double.parseDouble(entry.substring(slash + 1).trim()) });
+		}
+	}
+
+	public void recordQueueTime(String modelId, long nanos) {
+		latencyTimer(modelId, "queue").record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordModelTime(String modelId, long nanos) {
+		latencyTimer(modelId, "model").record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordUsage(String modelId, int inputTokens, int outputTokens, String stopReason) {
+		Counter.builder("pingo.ai.tokens").tag("model", modelId).tag("type", "input")
+				.register(meterRegistry).increment(inputTokens);
+		Counter.builder("pingo.ai.tokens").tag("model", modelId).tag("type", "output")
+				.register(meterRegistry).increment(outputTokens);
+
+		double[] price = pricing.get(modelId);
+		if (price != null) {
+			double cost = (inputTokens * price[0] + outputTokens * price[1]) / 1000;
+			Counter.builder("pingo.ai.cost.estimated").baseUnit("usd").tag("model", modelId)
+					.register(meterRegistry).increment(cost);
+		}
+		if (stopReason != null) {
+			Counter.builder("pingo.ai.stop").tag("model", modelId).tag("reason", stopReason)
+					.register(meterRegistry).increment();
+		}
+	}
+
+	public void recordRetrieval(String modelId, long nanos, int citations, int references) {
+		Timer.builder("pingo.ai.rag.retrieval").tag("model", modelId)
+				.register(meterRegistry).record(nanos, TimeUnit.NANOSECONDS);
+		DistributionSummary.builder("pingo.ai.rag.citations").tag("model", modelId)
+				.register(meterRegistry).record(citations);
+		DistributionSummary.builder("pingo.ai.rag.references").tag("model", modelId)
+				.register(meterRegistry).record(references);
+	}
+
+	/**
+	 * Request level SDK metric publisher. Splits SDK call time into connection acquire (queue) and service call (model) time.
+	 */
+	public MetricPublisher sdkPublisher(String modelId) {
+		return sdkPublishers.computeIfAbsent(modelId, SdkCallPublisher::new);
+	}
+
+	private Timer latencyTimer(String modelId, String stage) {
+		return Timer.builder("pingo.ai.upstream.latency")
+				.description("Upstream model latency")
+				.tag("model", modelId)
+				.tag("stage", stage)
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+	}
+
+	private class SdkCallPublisher implements MetricPublisher {
+		final String modelId;
+
+		SdkCallPublisher(String modelId) {
+			this.modelId = modelId;
+		}
+
+		@Override
+		public void publish(MetricCollection metricCollection) {
+			// Zero wait (uncontended pool) is recorded too, queue time distribution covers all calls
+			long acquire = sum(metricCollection, HttpMetric.CONCURRENCY_ACQUIRE_DURATION);
+			long service = sum(metricCollection, CoreMetric.SERVICE_CALL_DURATION);
+			if (acquire >= 0)
+				recordQueueTime(modelId, acquire);
+			if (service >= 0)
+				recordModelTime(modelId, service);
+		}
+
+		// Sum across retry attempts (child collections), -1 if metric isn't reported (e.g. by HTTP client)
+		private long sum(MetricCollection collection, SdkMetric<Duration> metric) {
+			long total = -1;
+			for (Duration d : collection.metricValues(metric))
+				total = Math.max(total, 0) + d.toNanos();
+			for (MetricCollection child : collection.children()) {
+				long childTotal = sum(child, metric);
+				if (childTotal >= 0)
+					total = Math.max(total, 0) + childTotal;
+			}
+			return total;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -16,65 +16,76 @@
 
 package com.pingo.ai;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
-import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
-import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import com.pingo.ai.MessagesApiCodec.ModelResponse;
+import com.pingo.ai.ModelRouter.RoutedResponse;
 
 @Service
 public class ChatModelWrapper {
 
-	// Amazon Bedrock - Base Models - Select your model and copy "Model ID" 
-	private final String MODEL_ID = "anthropic.claude-3-haiku-20240307-v1:0";
+	// Amazon Bedrock - Base Models - Select your model and copy "Model ID" (pingo.ai.routing.fast-model / capable-model) 
 	private final String QUERY_PATTERN = "Human: %s\n\nAssistant:";
 	
+	// Model Payload: version (Refer AWS document), max response size, randomness of response (max 1.0), 
+	// char sequences to mark end of query
+	private final MessagesApiCodec codec = new MessagesApiCodec("bedrock-2023-05-31", 200, 0.5, List.of("\n\nHuman:"));
+	
+	// Log 1 in N payloads at DEBUG level
+	@Value("${pingo.ai.log.sample-rate:100}")
+	private int logSampleRate;
+	private final AtomicLong logCounter = new AtomicLong();
+	
+	@Autowired
+    private ModelRouter modelRouter;
 	@Autowired
-    private BedrockRuntimeClient bedrockClient;
+	private ChatMetrics chatMetrics;
+	@Autowired
+	private ChatResponseCache responseCache;
+	
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	/**
+	 * Shared cached answer (see {@link ChatResponseCache#lookup}), null on miss
+	 */
+	public CompletableFuture<String> cached(String query, long deadlineNanos) {
+		return responseCache.lookup("chat", modelRouter.policyModel(query.length()), query, deadlineNanos)
+				.thenApply(answer -> answer != null ? answer.getText() : null);
+	}
 	
 	public String process(String query) {
 		String encodedQuery = String.format(QUERY_PATTERN, query);
-		return invokeModel(encodedQuery);
+		// Shared cache key uses the policy model, actual model may differ on fail over
+		String modelId = modelRouter.policyModel(query.length());
+		return responseCache.getOrCompute("chat", modelId, query, () -> invokeModel(encodedQuery, query.length())).getText();
 	}
 	
-	private String invokeModel(String query) {
+	private ChatAnswer invokeModel(String query, int promptLength) {
 		// Create Model Payload
-		JSONObject obj = new JSONObject();
-		obj.put("anthropic_version", "bedrock-2023-05-31") // Refer AWS document
-		   .put("max_tokens", 200) // Max Response Size
-		   .put("temperature", 0.5) // Randomness of Response (max 1.0)
-		   .put("stop_sequences", List.of("\n\nHuman:")); // Char sequences to mark end of query
-
-		JSONObject message = new JSONObject().put("role", "user"); // "user" role
-		JSONObject prompt = new JSONObject().put("type", "text").put("text", query); // Query
-		message = message.put("content", List.of(prompt));
-		obj = obj.put("messages", List.of(message));
+		byte[] payload = codec.encode(query);
+		boolean sampled = logger.isDebugEnabled() && logCounter.getAndIncrement() % Math.max(1, logSampleRate) == 0;
+		if (sampled)
+			logger.debug("__payload: {}", new String(payload, StandardCharsets.UTF_8));
 		
-		String payload = obj.toString();
-		System.out.println("__payload: " + obj.toString());
+		// Invoke Model (endpoint selected by router)
+		RoutedResponse response = modelRouter.invoke(promptLength, payload);
+		byte[] responseBody = response.getBody();
+		String modelId = response.getEndpoint().getModelId();
 		
-		// Invoke Model
-		InvokeModelRequest request = InvokeModelRequest.builder().body(SdkBytes.fromUtf8String(payload))
-				.modelId(MODEL_ID)
-				.contentType("application/json")
-				.accept("application/json").build();
-
-		InvokeModelResponse response = bedrockClient.invokeModel(request);
-		JSONObject responseBody = new JSONObject(response.body().asUtf8String());
-		
-		System.out.println("__response: "+ responseBody.toString());
+		if (sampled)
+			logger.debug("__response: {}", new String(responseBody, StandardCharsets.UTF_8));
 		// Parse response object
-		JSONArray contentArray = responseBody.getJSONArray("content");
-		String reponseMessage = null;
-		if(!contentArray.isEmpty())
-			reponseMessage = contentArray.getJSONObject(0).getString("text");
-		
-		return reponseMessage;
+		ModelResponse modelResponse = codec.decode(responseBody);
+		chatMetrics.recordUsage(modelId, modelResponse.getInputTokens(), modelResponse.getOutputTokens(), modelResponse.getStopReason());
+		return new ChatAnswer(modelResponse.getText(), modelId);
 	}
 }
@@ -16,6 +16,10 @@
 
 package com.pingo.ai;
 
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -37,13 +41,27 @@ public class ChatRAGModelWrapper {
 	
 	@Autowired
 	private BedrockAgentRuntimeClient bedrockAgentClient;
+	@Autowired
+	private ChatMetrics chatMetrics;
+	@Autowired
+	private ChatResponseCache responseCache;
+	
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	/**
+	 * Shared cached answer (see {@link ChatResponseCache#lookup}), null on miss
+	 */
+	public CompletableFuture<String> cached(String query, long deadlineNanos) {
+		return responseCache.lookup("rag-" + KNOWLEDGE_BASE_ID, MODEL_ARN, query, deadlineNanos)
+				.thenApply(answer -> answer != null ? answer.getText() : null);
+	}
 	
 	public String process(String query) {
-		return invokeModelWithRAG(query);
+		return responseCache.getOrCompute("rag-" + KNOWLEDGE_BASE_ID, MODEL_ARN, query, () -> invokeModelWithRAG(query)).getText();
 	}
 	
-	private String invokeModelWithRAG(String query) {
-		System.out.println("RAG - Invoke Knowledge Base and Model");
+	private ChatAnswer invokeModelWithRAG(String query) {
+		logger.debug("RAG - Invoke Knowledge Base and Model");
 		
 		// Config
 		KnowledgeBaseRetrieveAndGenerateConfiguration kbConfig = KnowledgeBaseRetrieveAndGenerateConfiguration.builder()
@@ -61,23 +79,33 @@ public class ChatRAGModelWrapper {
 		RetrieveAndGenerateRequest request = RetrieveAndGenerateRequest.builder()
 				.input(input)
 				.retrieveAndGenerateConfiguration(config)
+				.overrideConfiguration(o -> o.addMetricPublisher(chatMetrics.sdkPublisher(MODEL_ARN))) // queue / model time
 				.build();
 		
 		// Response from Knowledge Base
+		long start = System.nanoTime();
 		RetrieveAndGenerateResponse response = bedrockAgentClient.retrieveAndGenerate(request);
-		System.out.println("RAG - Response: "+ response.toString());
-		System.out.println("RAG - Output: "+ response.output().text());
-		System.out.println("RAG - Count of Citations: "+ (response.hasCitations() ? response.citations().size() : 0));
+		long retrievalTime = System.nanoTime() - start;
+		
+		int citations = response.hasCitations() ? response.citations().size() : 0;
+		int references = 0;
+		ChatAnswer answer = new ChatAnswer(response.output().text(), MODEL_ARN); // Response generated from query
+		logger.debug("RAG - Output: {}", response.output().text());
+		logger.debug("RAG - Count of Citations: {}", citations);
 		
 		// 1st citation (0th index) is actual result
 		for(Citation c : response.citations()) {
-			System.out.println("RAG - Retrival References: "+ (c.hasRetrievedReferences() ? c.retrievedReferences().size() : 0));
+			references += c.hasRetrievedReferences() ? c.retrievedReferences().size() : 0;
+			logger.debug("RAG - Retrival References: {}", (c.hasRetrievedReferences() ? c.retrievedReferences().size() : 0));
 			
 			for(RetrievedReference r : c.retrievedReferences()) {
-				System.out.println("RAG - Content: "+ r.content().text());
-				System.out.println("RAG - Location: "+ r.location().s3Location().uri());
+				String location = r.location() != null && r.location().s3Location() != null ? r.location().s3Location().uri() : null;
+				logger.debug("RAG - Location: {}", location);
+				answer.getCitations().add(new ChatAnswer.Reference(r.content().text(), location));
 			}
 		}
-		return response.output().text(); // Response generated from query
+		// Retrieval and generation is a single Bedrock call, timer covers both (queue / model split by SDK publisher)
+		chatMetrics.recordRetrieval(MODEL_ARN, retrievalTime, citations, references);
+		return answer;
 	}
 }
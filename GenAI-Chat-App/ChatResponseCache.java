@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import com.pras.cache.RedisGsonSerializer;
+
+/**
+ * Cluster wide exact-match response cache (Redis), shared by all replicas.
+ * <p>
+ * <b>Key:</b> pingo:{scope}:{model id}:{SHA-256 of normalized prompt}. Scope separates plain chat and Knowledge Base (RAG) answers. Prompt is normalized by trimming and 
+ * collapsing white spaces only, case is significant (code identifiers, acronyms).
+ * <p>
+ * <b>Value:</b> {@link ChatAnswer} (with citations) encoded by {@link RedisGsonSerializer}. TTL is configured per model.
+ * <p>
+ * <b>Stampede lock:</b> On miss, only the node which acquires {key}:lock (SET NX PX) calls the model. Lock expiry 
+ * is at least the upstream call timeout (connection acquisition + connect + socket timeout), so a slow model call 
+ * doesn't lose the lock to another node.
+ * <p>
+ * <b>Waiting:</b> {@link #lookup} is called before a request is scheduled. While another node holds the lock, it 
+ * polls for the value (back-off 50ms doubling up to 1s) on a timer thread, up to lock-wait (at least lock expiry) 
+ * or the request deadline, so a waiting request holds neither a servlet thread nor an upstream (scheduler) slot. 
+ * A request losing the lock race after lookup calls the model itself.
+ * <p>
+ * Redis failures never fail a chat request, model is called directly. Disabled by default (pingo.ai.cache.enabled).
+ */
+@Component
+public class ChatResponseCache implements DisposableBean {
+
+	private static final String KEY_PREFIX = "pingo:";
+	private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+			"if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+	private final boolean enabled;
+	private final Duration defaultTtl;
+	private final Map<String, Duration> modelTtls = new HashMap<>();
+	private final Duration lockTtl;
+	private final Duration lockWait;
+
+	private final RedisTemplate<String, Object> answerTemplate;
+	private final StringRedisTemplate lockTemplate;
+
+	// Lock waiters: poll timer, pending lookups (completed on shutdown)
+	private final ScheduledExecutorService waiter = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "response-cache-waiter");
+		t.setDaemon(true);
+		return t;
+	});
+	private final Set<CompletableFuture<ChatAnswer>> waiting = ConcurrentHashMap.newKeySet();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param modelTtls Comma separated model-id=duration (e.g. anthropic.claude-3-haiku-20240307-v1:0=30m)
+	 */
+	public ChatResponseCache(RedisConnectionFactory connectionFactory,
+			@Value("${pingo.ai.cache.enabled:false}") boolean enabled,
+			@Value("${pingo.ai.cache.ttl:1h}") Duration defaultTtl,
+			@Value("${pingo.ai.cache.model-ttls:}") String modelTtls,
+			@Value("${pingo.ai.cache.lock-ttl:0s}") Duration lockTtl,
+			@Value("${pingo.ai.cache.lock-wait:0s}") Duration lockWait,
+			@Value("${pingo.cloud.aws.http.connection-acquisition-timeout:10s}") Duration acquisitionTimeout,
+			@Value("${pingo.cloud.aws.http.connection-timeout:2s}") Duration connectionTimeout,
+			@Value("${pingo.cloud.aws.http.socket-timeout:60s}") Duration socketTimeout) {
+		this.enabled = enabled;
+		this.defaultTtl = defaultTtl;
+		Duration upstreamTimeout = acquisitionTimeout.plus(connectionTimeout).plus(socketTimeout);
+		this.lockTtl = lockTtl.compareTo(upstreamTimeout) < 0 ? upstreamTimeout : lockTtl;
+		this.lockWait = lockWait.compareTo(this.lockTtl) < 0 ? this.lockTtl : lockWait;
+		for (String entry : modelTtls.split(",")) {
+			int eq = entry.lastIndexOf('=');
+			if (eq > 0)
+				this.modelTtls.put(entry.substring(0, eq).trim(), DurationStyle.detectAndParse(entry.substring(eq + 1).trim()));
+		}
+
+		answerTemplate = new RedisTemplate<>();
+		answerTemplate.setConnectionFactory(connectionFactory);
+		answerTemplate.setKeySerializer(StringRedisSerializer.UTF_8);
+		answerTemplate.setValueSerializer(new RedisGsonSerializer(ChatAnswer.class));
+		answerTemplate.afterPropertiesSet();
+
+		lockTemplate = new StringRedisTemplate(connectionFactory);
+	}
+
+	/**
+	 * Cached answer, waits (without blocking) while another node is computing it
+	 * 
+	 * @param deadlineNanos Request deadline as System.nanoTime() value, caps the wait
+	 * @return Answer, null if not cached (or cache disabled)
+	 */
+	public CompletableFuture<ChatAnswer> lookup(String scope, String modelId, String prompt, long deadlineNanos) {
+		if (!enabled)
+			return CompletableFuture.completedFuture(null);
+
+		String key = key(scope, modelId, prompt);
+		ChatAnswer cached = read(key);
+		if (cached != null || !isLocked(key + ":lock"))
+			return CompletableFuture.completedFuture(cached);
+
+		CompletableFuture<ChatAnswer> result = new CompletableFuture<>();
+		waiting.add(result);
+		result.whenComplete((answer, e) -> waiting.remove(result));
+		long waitUntil = Math.min(System.nanoTime() + lockWait.toNanos(), deadlineNanos);
+		poll(key, waitUntil, 50, result);
+		return result;
+	}
+
+	private void poll(String key, long waitUntil, long delayMillis, CompletableFuture<ChatAnswer> result) {
+		long remainingMillis = Math.max(1, (waitUntil - System.nanoTime()) / 1_000_000);
+		try {
+			waiter.schedule(() -> {
+				// Lock is released after the value is written: lock gone and no value, the holder failed
+				boolean locked = isLocked(key + ":lock");
+				ChatAnswer cached = read(key);
+				if (cached != null || !locked || System.nanoTime() >= waitUntil) {
+					if (cached == null && locked)
+						logger.debug("Response cache lock wait timed out: {}", key);
+					result.complete(cached);
+				} else {
+					poll(key, waitUntil, Math.min(delayMillis * 2, 1000), result);
+				}
+			}, Math.min(delayMillis, remainingMillis), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// Shutting down
+			result.complete(null);
+		}
+	}
+
+	/**
+	 * Get cached answer or compute (call model) and share it with other nodes
+	 */
+	public ChatAnswer getOrCompute(String scope, String modelId, String prompt, Supplier<ChatAnswer> loader) {
+		if (!enabled)
+			return loader.get();
+
+		String key = key(scope, modelId, prompt);
+		ChatAnswer cached = read(key);
+		if (cached != null)
+			return cached;
+
+		String lockKey = key + ":lock";
+		String lockToken = UUID.randomUUID().toString();
+		Boolean locked = null;
+		try {
+			locked = lockTemplate.opsForValue().setIfAbsent(lockKey, lockToken, lockTtl);
+		} catch (RuntimeException e) {
+			logger.warn("Response cache lock failed: {}", e.getMessage());
+			return loader.get();
+		}
+
+		if (Boolean.TRUE.equals(locked)) {
+			try {
+				ChatAnswer answer = loader.get();
+				write(key, answer, ttl(modelId));
+				return answer;
+			} finally {
+				release(lockKey, lockToken);
+			}
+		}
+
+		// Another node started after lookup. Don't wait here, it would hold an upstream slot
+		logger.debug("Response cache lock race lost: {}", key);
+		return loader.get();
+	}
+
+	@Override
+	public void destroy() {
+		waiter.shutdownNow();
+		// Pending lookups fall through to the scheduler, which rejects them
+		waiting.forEach(result -> result.complete(null));
+	}
+
+	public String key(String scope, String modelId, String prompt) {
+		return KEY_PREFIX + scope + ":" + modelId + ":" + digest(normalize(prompt));
+	}
+
+	static String normalize(String prompt) {
+		return prompt.trim().replaceAll("\\s+", " ");
+	}
+
+	private boolean isLocked(String lockKey) {
+		try {
+			return Boolean.TRUE.equals(lockTemplate.hasKey(lockKey));
+		} catch (RuntimeException e) {
+			logger.warn("Response cache lock check failed: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	private ChatAnswer read(String key) {
+		try {
+			return (ChatAnswer) answerTemplate.opsForValue().get(key);
+		} catch (RuntimeException e) {
+			logger.warn("Response cache read failed: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	private void write(String key, ChatAnswer answer, Duration ttl) {
+		if (answer == null || answer.getText() == null)
+			return;
+		try {
+			answerTemplate.opsForValue().set(key, answer, ttl);
+		} catch (RuntimeException e) {
+			logger.warn("Response cache write failed: {}", e.getMessage());
+		}
+	}
+
+	private void release(String lockKey, String lockToken) {
+		try {
+			// Delete only own lock (lock may have expired and be taken by another node)
+			lockTemplate.execute(RELEASE_LOCK, List.of(lockKey), lockToken);
+		} catch (RuntimeException e) {
+			logger.warn("Response cache unlock failed: {}", e.getMessage());
+		}
+	}
+
+	private Duration ttl(String modelId) {
+		return modelTtls.getOrDefault(modelId, defaultTtl);
+	}
+
+	private static String digest(String value) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(md.digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
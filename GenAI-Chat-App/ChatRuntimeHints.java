@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Native image (-Pnative) hints for reflection Spring AOT doesn't detect.
+ * <p>
+ * <b>Gson:</b> Cached {@link ChatAnswer} is (de)serialized by RedisGsonSerializer through field reflection. 
+ * <b>AWS SDK:</b> Bedrock clients are built directly (AwsConfig), SDK core and HTTP clients ship their own native-image 
+ * metadata. Client implementations are registered for Spring's bean introspection (destroy method "close"). 
+ * CRT client (pingo.cloud.aws.http.client-type=crt) uses JNI, prefer apache for native images.
+ */
+public class ChatRuntimeHints implements RuntimeHintsRegistrar {
+
+	private static final String[] BEDROCK_CLIENTS = {
+			"software.amazon.awssdk.services.bedrockruntime.DefaultBedrockRuntimeClient",
+			"software.amazon.awssdk.services.bedrockagentruntime.DefaultBedrockAgentRuntimeClient"
+	};
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		hints.reflection().registerType(ChatAnswer.class, MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+		hints.reflection().registerType(ChatAnswer.Reference.class, MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+		
+		for (String type : BEDROCK_CLIENTS)
+			hints.reflection().registerTypeIfPresent(classLoader, type, MemberCategory.INVOKE_PUBLIC_METHODS);
+	}
+}
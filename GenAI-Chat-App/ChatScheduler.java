@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Fair scheduler for upstream model calls. Upstream capacity (max-concurrency) is shared by worker threads, 
+ * which pick requests as below-
+ * <p>
+ * 1. Priority class: INTERACTIVE requests are picked before BATCH. To avoid starvation, 1 in "batch-share" 
+ * dispatches goes to BATCH when both are waiting.
+ * <p>
+ * 2. Within a class: each tenant (user) has its own queue, served with weighted Deficit Round Robin. A tenant 
+ * with weight 3 gets 3 dispatches for every 1 of a tenant with weight 1, irrespective of how many requests it queued.
+ * <p>
+ * 3. Deadline: Request which is expected to miss its deadline (now + average service time) is dropped before 
+ * calling upstream. Requests are also rejected upfront when tenant queue is full.
+ * <p>
+ * <b>Bounds:</b> Queued requests (max-queued) and tenants with queued requests (max-tenants) are capped across 
+ * all tenants, rotating tenant ids can't grow memory.
+ * <p>
+ * <b>Metrics:</b> pingo.ai.scheduler.wait{priority}, pingo.ai.scheduler.rejected{priority, reason}
+ */
+@Component
+public class ChatScheduler implements DisposableBean {
+
+	public static enum Priority {
+		INTERACTIVE, BATCH;
+	}
+
+	private final int maxQueuePerTenant;
+	private final int maxQueued;
+	private final int maxTenants;
+	private final int batchShare;
+	private final Map<String, Integer> tenantWeights = new HashMap<>();
+	private final MeterRegistry meterRegistry;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private final PriorityClass[] classes = { new PriorityClass(), new PriorityClass() }; // Indexed by Priority ordinal
+	private long dispatchCount;
+	private volatile boolean running = true;
+	private final List<Thread> workers = new ArrayList<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param tenantWeights Comma separated tenant=weight, default weight is 1
+	 */
+	public ChatScheduler(MeterRegistry meterRegistry,
+			@Value("${pingo.ai.scheduler.max-concurrency:16}") int maxConcurrency,
+			@Value("${pingo.ai.scheduler.max-queue-per-tenant:50}") int maxQueuePerTenant,
+			@Value("${pingo.ai.scheduler.max-queued:1000}") int maxQueued,
+			@Value("${pingo.ai.scheduler.max-tenants:500}") int maxTenants,
+			@Value("${pingo.ai.scheduler.batch-share:10}") int batchShare,
+			@Value("${pingo.ai.scheduler.tenant-weights:}") String tenantWeights) {
+		this.meterRegistry = meterRegistry;
+		this.maxQueuePerTenant = maxQueuePerTenant;
+		this.maxQueued = maxQueued;
+		this.maxTenants = maxTenants;
+		this.batchShare = Math.max(2, batchShare);
+		for (String entry : tenantWeights.split(",")) {
+			int eq = entry.indexOf('=');
+			if (eq > 0)
+				this.tenantWeights.put(entry.substring(0, eq).trim(), Math.max(1, Integer.parseInt(entry.substring(eq + 1).trim())));
+		}
+
+		for (int i = 0; i < maxConcurrency; i++) {
+			Thread t = new Thread(this::work, "chat-worker-" + (i + 1));
+			t.setDaemon(true);
+			t.start();
+			workers.add(t);
+		}
+	}
+
+	/**
+	 * Queue work for execution
+	 * 
+	 * @param tenant User or Tenant id (fairness unit)
+	 * @param priority Priority class
+	 * @param deadlineNanos Deadline as System.nanoTime() value
+	 * @param work Upstream call
+	 * @return Result, completed exceptionally with {@link RejectedException} if request is dropped
+	 */
+	public <T> CompletableFuture<T> submit(String tenant, Priority priority, long deadlineNanos, Supplier<T> work) {
+		Task<T> task = new Task<>(priority, deadlineNanos, work);
+		PriorityClass cls = classes[priority.ordinal()];
+
+		lock.lock();
+		try {
+			if (!running)
+				return reject(task, "shutdown");
+			if (System.nanoTime() + cls.averageServiceNanos > deadlineNanos)
+				return reject(task, "deadline");
+			if (classes[0].size + classes[1].size >= maxQueued)
+				return reject(task, "overloaded");
+
+			TenantQueue queue = cls.queues.get(tenant);
+			if (queue == null) {
+				if (classes[0].queues.size() + classes[1].queues.size() >= maxTenants)
+					return reject(task, "overloaded");
+				queue = new TenantQueue(tenant, tenantWeights.getOrDefault(tenant, 1));
+				cls.queues.put(tenant, queue);
+				cls.active.addLast(queue);
+			}
+			if (queue.tasks.size() >= maxQueuePerTenant)
+				return reject(task, "queue-full");
+
+			queue.tasks.addLast(task);
+			cls.size++;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+		return task.future;
+	}
+
+	private <T> CompletableFuture<T> reject(Task<T> task, String reason) {
+		Counter.builder("pingo.ai.scheduler.rejected")
+				.tag("priority", task.priority.name().toLowerCase())
+				.tag("reason", reason)
+				.register(meterRegistry).increment();
+		task.future.completeExceptionally(new RejectedException(reason));
+		return task.future;
+	}
+
+	private void work() {
+		while (running) {
+			Task<?> task;
+			try {
+				task = next();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			long start = System.nanoTime();
+			PriorityClass cls = classes[task.priority.ordinal()];
+			Timer.builder("pingo.ai.scheduler.wait")
+					.tag("priority", task.priority.name().toLowerCase())
+					.register(meterRegistry).record(start - task.queuedAt, TimeUnit.NANOSECONDS);
+
+			// Drop early, if request can't complete before deadline
+			if (start + cls.averageServiceNanos > task.deadlineNanos) {
+				reject(task, "deadline");
+				continue;
+			}
+			task.run();
+			long serviceNanos = System.nanoTime() - start;
+			lock.lock();
+			try {
+				cls.recordServiceTime(serviceNanos);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	// Block until a task is available. Priority class first, then weighted round robin across tenants
+	private Task<?> next() throws InterruptedException {
+		lock.lock();
+		try {
+			while (classes[0].size == 0 && classes[1].size == 0)
+				available.await();
+
+			PriorityClass interactive = classes[Priority.INTERACTIVE.ordinal()];
+			PriorityClass batch = classes[Priority.BATCH.ordinal()];
+			dispatchCount++;
+			PriorityClass cls;
+			if (interactive.size == 0)
+				cls = batch;
+			else if (batch.size == 0)
+				cls = interactive;
+			else
+				cls = dispatchCount % batchShare == 0 ? batch : interactive;
+
+			// Deficit Round Robin (each request costs 1)
+			TenantQueue queue = cls.active.peekFirst();
+			if (queue.deficit == 0)
+				queue.deficit = queue.weight;
+			Task<?> task = queue.tasks.pollFirst();
+			queue.deficit--;
+			cls.size--;
+
+			if (queue.tasks.isEmpty()) {
+				cls.active.pollFirst();
+				cls.queues.remove(queue.tenant);
+			} else if (queue.deficit == 0) {
+				cls.active.addLast(cls.active.pollFirst());
+			}
+			return task;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stop workers, queued requests are rejected ("shutdown") so their callers don't wait forever
+	 */
+	@Override
+	public void destroy() {
+		List<Task<?>> pending = new ArrayList<>();
+		lock.lock();
+		try {
+			running = false;
+			for (PriorityClass cls : classes) {
+				for (TenantQueue queue : cls.queues.values())
+					pending.addAll(queue.tasks);
+				cls.queues.clear();
+				cls.active.clear();
+				cls.size = 0;
+			}
+		} finally {
+			lock.unlock();
+		}
+		workers.forEach(Thread::interrupt);
+		pending.forEach(task -> reject(task, "shutdown"));
+	}
+
+	/**
+	 * Request dropped by scheduler. Reason: "queue-full" (tenant queue), "overloaded" (global bounds), "deadline"
+	 * or "shutdown"
+	 */
+	public static class RejectedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final String reason;
+
+		public RejectedException(String reason) {
+			super("Request rejected: " + reason);
+			this.reason = reason;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+
+	private static class PriorityClass {
+		final Map<String, TenantQueue> queues = new HashMap<>();
+		final ArrayDeque<TenantQueue> active = new ArrayDeque<>();
+		int size;
+		// EWMA of upstream call time, used to predict deadline misses. Updated under scheduler lock
+		volatile long averageServiceNanos;
+
+		void recordServiceTime(long nanos) {
+			long avg = averageServiceNanos;
+			averageServiceNanos = avg == 0 ? nanos : avg + (nanos - avg) / 8;
+		}
+	}
+
+	private static class TenantQueue {
+		final String tenant;
+		final int weight;
+		final ArrayDeque<Task<?>> tasks = new ArrayDeque<>();
+		int deficit;
+
+		TenantQueue(String tenant, int weight) {
+			this.tenant = tenant;
+			this.weight = weight;
+		}
+	}
+
+	private static class Task<T> {
+		final Priority priority;
+		final long deadlineNanos;
+		final long queuedAt = System.nanoTime();
+		final Supplier<T> work;
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Task(Priority priority, long deadlineNanos, Supplier<T> work) {
+			this.priority = priority;
+			this.deadlineNanos = deadlineNanos;
+			this.work = work;
+		}
+
+		void run() {
+			try {
+				future.complete(work.get());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
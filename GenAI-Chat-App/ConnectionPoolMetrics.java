@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * AWS SDK Metric Publisher to expose HTTP connection pool state through Micrometer (Actuator /actuator/metrics).
+ * <p>
+ * SDK reports pool state with every API call attempt. Last reported value is kept in a gauge per client.
+ * <p>
+ * <b>Metrics:</b>
+ * <p>
+ * pingo.aws.http.pool{client, state=max|available|leased|pending} - Connection pool state
+ * <p>
+ * pingo.aws.http.acquire{client} - Time spent to acquire a connection from pool (pool sizing)
+ */
+public class ConnectionPoolMetrics implements MetricPublisher {
+
+	private final Map<SdkMetric<Integer>, AtomicInteger> poolState = new LinkedHashMap<>();
+	private final Timer acquireTimer;
+
+	public ConnectionPoolMetrics(String clientName, MeterRegistry meterRegistry) {
+		poolState.put(HttpMetric.MAX_CONCURRENCY, gauge(meterRegistry, clientName, "max"));
+		poolState.put(HttpMetric.AVAILABLE_CONCURRENCY, gauge(meterRegistry, clientName, "available"));
+		poolState.put(HttpMetric.LEASED_CONCURRENCY, gauge(meterRegistry, clientName, "leased"));
+		poolState.put(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, gauge(meterRegistry, clientName, "pending"));
+
+		acquireTimer = Timer.builder("pingo.aws.http.acquire")
+				.description("Time to acquire HTTP connection from pool")
+				.tag("client", clientName)
+				.register(meterRegistry);
+	}
+
+	private AtomicInteger gauge(MeterRegistry meterRegistry, String clientName, String state) {
+		AtomicInteger value = new AtomicInteger();
+		Gauge.builder("pingo.aws.http.pool", value, AtomicInteger::get)
+				.description("HTTP connection pool state")
+				.tag("client", clientName)
+				.tag("state", state)
+				.register(meterRegistry);
+		return value;
+	}
+
+	@Override
+	public void publish(MetricCollection metricCollection) {
+		// HTTP metrics are reported in child collections (ApiCall > ApiCallAttempt > HttpClient)
+		for (Map.Entry<SdkMetric<Integer>, AtomicInteger> entry : poolState.entrySet()) {
+			List<Integer> values = metricCollection.metricValues(entry.getKey());
+			if (!values.isEmpty())
+				entry.getValue().set(values.get(values.size() - 1));
+		}
+		for (Duration d : metricCollection.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION))
+			acquireTimer.record(d.toNanos(), TimeUnit.NANOSECONDS);
+
+		for (MetricCollection child : metricCollection.children())
+			publish(child);
+	}
+
+	@Override
+	public void close() {
+		// Meters are owned by registry
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.util.Arrays;
+
+/**
+ * Live latency and error statistics of a {@link ModelEndpoint} over a sliding time window.
+ * <p>
+ * Keeps the last N call results in a ring. Samples older than the window are ignored, so an endpoint 
+ * which is no longer receiving traffic gradually returns to "unknown" (healthy) state and gets probed again.
+ */
+public class EndpointStats {
+
+	private final long windowNanos;
+	private final long[] timestamps;
+	private final long[] latencies;
+	private final boolean[] errors;
+	private int next;
+	
+	// Snapshot is re-computed at most once per interval (not on every record), scratch array is reused
+	private static final long SNAPSHOT_INTERVAL = 250_000_000L;
+	private Snapshot snapshot;
+	private long snapshotTime;
+	private final long[] scratch;
+
+	public EndpointStats(int capacity, long windowNanos) {
+		this.windowNanos = windowNanos;
+		this.timestamps = new long[capacity];
+		this.latencies = new long[capacity];
+		this.errors = new boolean[capacity];
+		this.scratch = new long[capacity];
+		Arrays.fill(timestamps, Long.MIN_VALUE);
+	}
+
+	public synchronized void record(long now, long latencyNanos, boolean error) {
+		timestamps[next] = now;
+		latencies[next] = latencyNanos;
+		errors[next] = error;
+		next = (next + 1) % timestamps.length;
+	}
+
+	public synchronized Snapshot snapshot(long now) {
+		if (snapshot != null && now - snapshotTime < SNAPSHOT_INTERVAL)
+			return snapshot;
+
+		long[] window = scratch;
+		int successes = 0;
+		int failures = 0;
+		for (int i = 0; i < timestamps.length; i++) {
+			if (timestamps[i] == Long.MIN_VALUE || now - timestamps[i] > windowNanos)
+				continue;
+			if (errors[i])
+				failures++;
+			else
+				window[successes++] = latencies[i];
+		}
+		snapshot = new Snapshot(successes + failures, failures, p99(window, successes));
+		snapshotTime = now;
+		return snapshot;
+	}
+	
+	private static long p99(long[] values, int count) {
+		if (count == 0)
+			return 0;
+		Arrays.sort(values, 0, count);
+		return values[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+	}
+
+	/**
+	 * Point in time stats. p99 is computed from successful calls
+	 */
+	public static class Snapshot {
+		final int samples;
+		final int errors;
+		final long p99Nanos;
+
+		Snapshot(int samples, int errors, long p99Nanos) {
+			this.samples = samples;
+			this.errors = errors;
+			this.p99Nanos = p99Nanos;
+		}
+
+		public int getSamples() {
+			return samples;
+		}
+		public double getErrorRate() {
+			return samples == 0 ? 0 : (double) errors / samples;
+		}
+		public long getP99Nanos() {
+			return p99Nanos;
+		}
+	}
+}
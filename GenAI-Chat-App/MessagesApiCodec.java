@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Codec for Anthropic Messages API payload (Bedrock InvokeModel). Refer Model-Claude3-Haiku-REQUEST.json 
+ * and Model-Claude3-Haiku-RESPONSE.json for payload structure.
+ * <p>
+ * Request: Static part of the payload (version, max_tokens, temperature, stop_sequences) is pre-compiled once 
+ * into prefix/suffix bytes. Per request, only the escaped query text is written in between, into a reusable 
+ * per-thread buffer. No intermediate JSON tree or String is created.
+ * <p>
+ * Response: Streaming (Jackson JsonParser) read of content[0].text and usage block. Other fields are skipped.
+ */
+public class MessagesApiCodec {
+
+	// Buffers larger than this are not retained between requests
+	private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SUFFIX = "\"}]}]}".getBytes(StandardCharsets.US_ASCII);
+
+	private final byte[] prefix;
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final ThreadLocal<PayloadBuffer> buffers = ThreadLocal.withInitial(() -> new PayloadBuffer(1024));
+
+	public MessagesApiCodec(String anthropicVersion, int maxTokens, double temperature, List<String> stopSequences) {
+		PayloadBuffer b = new PayloadBuffer(256);
+		b.writeAscii("{\"anthropic_version\":\"");
+		b.writeEscaped(anthropicVersion);
+		b.writeAscii("\",\"max_tokens\":" + maxTokens);
+		b.writeAscii(",\"temperature\":" + temperature);
+		b.writeAscii(",\"stop_sequences\":[");
+		for (int i = 0; i < stopSequences.size(); i++) {
+			b.writeAscii(i == 0 ? "\"" : ",\"");
+			b.writeEscaped(stopSequences.get(i));
+			b.writeAscii("\"");
+		}
+		b.writeAscii("],\"messages\":[{\"role\":\"user\",\"content\":[{\"type\":\"text\",\"text\":\"");
+		this.prefix = b.toByteArray();
+	}
+
+	/**
+	 * Encode user query into InvokeModel request body (UTF-8 JSON)
+	 */
+	public byte[] encode(String text) {
+		PayloadBuffer b = buffers.get();
+		b.reset();
+		b.write(prefix);
+		b.writeEscaped(text);
+		b.write(SUFFIX);
+		byte[] payload = b.toByteArray();
+		
+		if (b.capacity() > MAX_RETAINED_BUFFER)
+			buffers.remove(); // Don't pin large buffers to pooled threads
+		return payload;
+	}
+
+	/**
+	 * Decode InvokeModel response body
+	 */
+	public ModelResponse decode(byte[] body) {
+		ModelResponse response = new ModelResponse();
+		try (JsonParser p = jsonFactory.createParser(body)) {
+			if (p.nextToken() != JsonToken.START_OBJECT)
+				throw new IllegalStateException("Invalid model response, JSON object expected");
+
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				String field = p.currentName();
+				JsonToken value = p.nextToken();
+				
+				if ("content".equals(field) && value == JsonToken.START_ARRAY)
+					readContent(p, response);
+				else if ("usage".equals(field) && value == JsonToken.START_OBJECT)
+					readUsage(p, response);
+				else if ("stop_reason".equals(field))
+					response.stopReason = p.getValueAsString();
+				else
+					p.skipChildren();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to parse model response: " + e.getMessage(), e);
+		}
+		return response;
+	}
+
+	private void readContent(JsonParser p, ModelResponse response) throws IOException {
+		// Only 1st content block (0th index) is used
+		boolean first = true;
+		while (p.nextToken() != JsonToken.END_ARRAY) {
+			if (first && p.currentToken() == JsonToken.START_OBJECT) {
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					String field = p.currentName();
+					p.nextToken();
+					if ("text".equals(field))
+						response.text = p.getValueAsString();
+					else
+						p.skipChildren();
+				}
+				first = false;
+			} else {
+				p.skipChildren();
+			}
+		}
+	}
+
+	private void readUsage(JsonParser p, ModelResponse response) throws IOException {
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.currentName();
+			p.nextToken();
+			if ("input_tokens".equals(field))
+				response.inputTokens = p.getValueAsInt();
+			else if ("output_tokens".equals(field))
+				response.outputTokens = p.getValueAsInt();
+			else
+				p.skipChildren();
+		}
+	}
+
+	/**
+	 * Parsed model response
+	 */
+	public static class ModelResponse {
+		String text;
+		int inputTokens;
+		int outputTokens;
+		String stopReason;
+
+		public String getText() {
+			return text;
+		}
+		public int getInputTokens() {
+			return inputTokens;
+		}
+		public int getOutputTokens() {
+			return outputTokens;
+		}
+		public String getStopReason() {
+			return stopReason;
+		}
+	}
+
+	/**
+	 * Growable byte buffer with JSON string escaping (UTF-8)
+	 */
+	static class PayloadBuffer {
+		private byte[] buf;
+		private int count;
+
+		PayloadBuffer(int size) {
+			buf = new byte[size];
+		}
+
+		void reset() {
+			count = 0;
+		}
+
+		int capacity() {
+			return buf.length;
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buf, count);
+		}
+
+		void write(byte[] bytes) {
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buf, count, bytes.length);
+			count += bytes.length;
+		}
+
+		void writeAscii(String s) {
+			ensure(s.length());
+			for (int i = 0; i < s.length(); i++)
+				buf[count++] = (byte) s.charAt(i);
+		}
+
+		void writeEscaped(String s) {
+			// Worst case: 6 bytes (\\uXXXX) per char
+			ensure(s.length() * 6);
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c < 0x80) {
+					switch (c) {
+					case '"': escape('"'); break;
+					case '\\': escape('\\'); break;
+					case '\n': escape('n'); break;
+					case '\r': escape('r'); break;
+					case '\t': escape('t'); break;
+					case '\b': escape('b'); break;
+					case '\f': escape('f'); break;
+					default:
+						if (c < 0x20) {
+							buf[count++] = '\\';
+							buf[count++] = 'u';
+							buf[count++] = '0';
+							buf[count++] = '0';
+							buf[count++] = HEX[c >> 4];
+							buf[count++] = HEX[c & 0xF];
+						} else {
+							buf[count++] = (byte) c;
+						}
+					}
+				} else if (c < 0x800) {
+					buf[count++] = (byte) (0xC0 | (c >> 6));
+					buf[count++] = (byte) (0x80 | (c & 0x3F));
+				} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+					int cp = Character.toCodePoint(c, s.charAt(++i));
+					buf[count++] = (byte) (0xF0 | (cp >> 18));
+					buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+					buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+					buf[count++] = (byte) (0x80 | (cp & 0x3F));
+				} else if (Character.isSurrogate(c)) {
+					// Unpaired surrogate, replace with U+FFFD
+					buf[count++] = (byte) 0xEF;
+					buf[count++] = (byte) 0xBF;
+					buf[count++] = (byte) 0xBD;
+				} else {
+					buf[count++] = (byte) (0xE0 | (c >> 12));
+					buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					buf[count++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+		}
+
+		private void escape(char c) {
+			buf[count++] = '\\';
+			buf[count++] = (byte) c;
+		}
+
+		private void ensure(int extra) {
+			if (count + extra > buf.length)
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.util.Objects;
+
+/**
+ * Model deployment target: Bedrock model id in a region
+ */
+public final class ModelEndpoint {
+
+	private final String modelId;
+	private final String region;
+
+	public ModelEndpoint(String modelId, String region) {
+		this.modelId = Objects.requireNonNull(modelId);
+		this.region = Objects.requireNonNull(region);
+	}
+
+	public String getModelId() {
+		return modelId;
+	}
+
+	public String getRegion() {
+		return region;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof ModelEndpoint))
+			return false;
+		ModelEndpoint other = (ModelEndpoint) o;
+		return modelId.equals(other.modelId) && region.equals(other.region);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * modelId.hashCode() + region.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return region + "/" + modelId;
+	}
+}
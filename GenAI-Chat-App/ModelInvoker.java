@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+/**
+ * Invoke a model endpoint with a prepared request payload and return raw response body.
+ * <p>
+ * Bedrock implementation: {@link BedrockModelInvoker}. Local fakes can implement this interface to 
+ * exercise {@link ModelRouter} (latency, errors) without AWS access.
+ */
+public interface ModelInvoker {
+
+	byte[] invoke(ModelEndpoint endpoint, byte[] payload);
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, http://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pingo.ai;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+/**
+ * Latency aware model router.
+ * <p>
+ * <b>Policy:</b> Prompts shorter than "long-prompt-chars" go to the fast model, longer prompts go to the capable model. 
+ * The other model is used as fallback. Each model is tried in configured regions, in order.
+ * <p>
+ * <b>Health:</b> Latency and error rate of every endpoint is tracked ({@link EndpointStats}). An endpoint whose p99 or 
+ * error rate crosses the threshold is moved behind healthy endpoints (fail over) until its stats recover.
+ * <p>
+ * <b>Failover:</b> Throttling, 5xx and transport errors move the request to the next endpoint. Client errors (4xx) are returned as is.
+ * <p>
+ * <b>Hedging:</b> If enabled (hedge-delay > 0), a request which hasn't completed within hedge delay is also sent to the next 
+ * endpoint, first successful response wins.
+ */
+@Component
+public class ModelRouter implements DisposableBean {
+
+	private final ModelInvoker modelInvoker;
+	private final String fastModel;
+	private final String capableModel;
+	private final int longPromptChars;
+	private final List<String> regions;
+	private final long p99ThresholdNanos;
+	private final double errorRateThreshold;
+	private final int minSamples;
+	private final long hedgeDelayNanos;
+	private final long statsWindowNanos;
+
+	private final Map<ModelEndpoint, EndpointStats> stats = new ConcurrentHashMap<>();
+	private final ExecutorService hedgeExecutor;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public ModelRouter(ModelInvoker modelInvoker,
+			@Value("${pingo.ai.routing.fast-model:anthropic.claude-3-haiku-20240307-v1:0}") String fastModel,
+			@Value("${pingo.ai.routing.capable-model:anthropic.claude-3-5-sonnet-20240620-v1:0}") String capableModel,
+			@Value("${pingo.ai.routing.long-prompt-chars:2000}") int longPromptChars,
+			@Value("${pingo.ai.routing.regions:${pingo.cloud.aws.region.static}}") List<String> regions,
+			@Value("${pingo.ai.routing.p99-threshold:10s}") Duration p99Threshold,
+			@Value("${pingo.ai.routing.error-rate-threshold:0.2}") double errorRateThreshold,
+			@Value("${pingo.ai.routing.min-samples:20}") int minSamples,
+			@Value("${pingo.ai.routing.stats-window:60s}") Duration statsWindow,
+			@Value("${pingo.ai.routing.hedge-delay:0s}") Duration hedgeDelay,
+			@Value("${pingo.ai.routing.hedge-max-concurrency:64}") int hedgeMaxConcurrency) {
+		this.modelInvoker = modelInvoker;
+		this.fastModel = fastModel;
+		this.capableModel = capableModel;
+		this.longPromptChars = longPromptChars;
+		this.regions = List.copyOf(regions);
+		this.p99ThresholdNanos = p99Threshold.toNanos();
+		this.errorRateThreshold = errorRateThreshold;
+		this.minSamples = minSamples;
+		this.statsWindowNanos = statsWindow.toNanos();
+		this.hedgeDelayNanos = hedgeDelay.toNanos();
+		
+		// Hedged calls need a thread each, bounded. If saturated, request continues without hedge
+		AtomicInteger threadId = new AtomicInteger();
+		this.hedgeExecutor = new ThreadPoolExecutor(0, hedgeMaxConcurrency, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+			Thread t = new Thread(r, "model-hedge-" + threadId.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Route request to the best endpoint as per policy and health
+	 * 
+	 * @param promptLength Length of user prompt (routing policy)
+	 * @param payload Request body
+	 */
+	public RoutedResponse invoke(int promptLength, byte[] payload) {
+		List<ModelEndpoint> plan = plan(promptLength);
+		RuntimeException failure = null;
+		
+		for (int i = 0; i < plan.size(); i++) {
+			ModelEndpoint endpoint = plan.get(i);
+			boolean hedged = hedgeDelayNanos > 0 && i + 1 < plan.size();
+			try {
+				if (hedged) {
+					// Both endpoints are tried by hedged call (in parallel or one after the other), failures are logged there
+					ModelEndpoint hedge = plan.get(++i);
+					return invokeHedged(endpoint, hedge, payload);
+				}
+				return new RoutedResponse(endpoint, invokeOnce(endpoint, payload));
+				
+			} catch (RuntimeException e) {
+				if (!isFailoverError(e))
+					throw e;
+				if (!hedged)
+					logger.warn("Model endpoint {} failed, fail over: {}", endpoint, e.getMessage());
+				failure = e;
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * Model selected by policy (irrespective of endpoint health)
+	 */
+	public String policyModel(int promptLength) {
+		return promptLength >= longPromptChars ? capableModel : fastModel;
+	}
+
+	/**
+	 * Ordered endpoints for a prompt: policy model in all regions, then fallback model. Unhealthy endpoints are moved to the end.
+	 */
+	public List<ModelEndpoint> plan(int promptLength) {
+		String primary = policyModel(promptLength);
+		String secondary = primary.equals(fastModel) ? capableModel : fastModel;
+
+		List<ModelEndpoint> healthy = new ArrayList<>();
+		List<ModelEndpoint> unhealthy = new ArrayList<>();
+		long now = System.nanoTime();
+		for (String modelId : primary.equals(secondary) ? List.of(primary) : List.of(primary, secondary)) {
+			for (String region : regions) {
+				ModelEndpoint endpoint = new ModelEndpoint(modelId, region);
+				(isHealthy(endpoint, now) ? healthy : unhealthy).add(endpoint);
+			}
+		}
+		healthy.addAll(unhealthy);
+		return healthy;
+	}
+
+	public boolean isHealthy(ModelEndpoint endpoint, long now) {
+		EndpointStats.Snapshot s = stats(endpoint).snapshot(now);
+		if (s.getSamples() < minSamples)
+			return true; // Not enough data
+		return s.getP99Nanos() <= p99ThresholdNanos && s.getErrorRate() <= errorRateThreshold;
+	}
+
+	public EndpointStats stats(ModelEndpoint endpoint) {
+		return stats.computeIfAbsent(endpoint, e -> new EndpointStats(256, statsWindowNanos));
+	}
+
+	private byte[] invokeOnce(ModelEndpoint endpoint, byte[] payload) {
+		long start = System.nanoTime();
+		try {
+			byte[] response = modelInvoker.invoke(endpoint, payload);
+			long end = System.nanoTime();
+			stats(endpoint).record(end, end - start, false);
+			return response;
+			
+		} catch (RuntimeException e) {
+			long end = System.nanoTime();
+			// Client errors (4xx) are not endpoint health issues, local errors (codec, bugs) aren't endpoint calls
+			if (isFailoverError(e))
+				stats(endpoint).record(end, end - start, true);
+			else if (e instanceof AwsServiceException)
+				stats(endpoint).record(end, end - start, false);
+			throw e;
+		}
+	}
+
+	private RoutedResponse invokeHedged(ModelEndpoint primary, ModelEndpoint hedge, byte[] payload) {
+		CompletableFuture<RoutedResponse> first;
+		try {
+			first = CompletableFuture.supplyAsync(() -> new RoutedResponse(primary, invokeOnce(primary, payload)), hedgeExecutor);
+		} catch (RejectedExecutionException e) {
+			// No capacity to hedge, call endpoints one after the other on caller thread
+			try {
+				return new RoutedResponse(primary, invokeOnce(primary, payload));
+			} catch (RuntimeException ex) {
+				return failOver(primary, hedge, ex, payload);
+			}
+		}
+		
+		try {
+			return first.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			logger.debug("Model endpoint {} slow, hedge with {}", primary, hedge);
+		} catch (ExecutionException e) {
+			// Failed before hedge delay: hedge endpoint is next, not skipped
+			return failOver(primary, hedge, unwrap(e.getCause()), payload);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		}
+
+		CompletableFuture<RoutedResponse> second;
+		try {
+			second = CompletableFuture.supplyAsync(() -> new RoutedResponse(hedge, invokeOnce(hedge, payload)), hedgeExecutor);
+		} catch (RejectedExecutionException e) {
+			// No capacity to hedge: wait for primary, hedge endpoint is next if it fails
+			try {
+				return first.join();
+			} catch (CompletionException ex) {
+				return failOver(primary, hedge, unwrap(ex.getCause()), payload);
+			}
+		}
+		
+		// First success wins, fail only if both fail
+		CompletableFuture<RoutedResponse> winner = new CompletableFuture<>();
+		AtomicInteger failures = new AtomicInteger();
+		List<ModelEndpoint> endpoints = List.of(primary, hedge);
+		List<CompletableFuture<RoutedResponse>> calls = List.of(first, second);
+		for (int i = 0; i < calls.size(); i++) {
+			ModelEndpoint endpoint = endpoints.get(i);
+			calls.get(i).whenComplete((r, e) -> {
+				if (e == null) {
+					winner.complete(r);
+					return;
+				}
+				RuntimeException cause = unwrap(e);
+				if (isFailoverError(cause))
+					logger.warn("Model endpoint {} failed: {}", endpoint, cause.getMessage());
+				if (failures.incrementAndGet() == 2)
+					winner.completeExceptionally(e);
+			});
+		}
+		try {
+			return winner.join();
+		} catch (CompletionException e) {
+			throw unwrap(e.getCause());
+		}
+	}
+
+	// Primary failed (hedge not sent): call hedge endpoint on caller thread
+	private RoutedResponse failOver(ModelEndpoint failed, ModelEndpoint next, RuntimeException e, byte[] payload) {
+		if (!isFailoverError(e))
+			throw e;
+		logger.warn("Model endpoint {} failed, fail over: {}", failed, e.getMessage());
+		try {
+			return new RoutedResponse(next, invokeOnce(next, payload));
+		} catch (RuntimeException ex) {
+			if (isFailoverError(ex))
+				logger.warn("Model endpoint {} failed, fail over: {}", next, ex.getMessage());
+			throw ex;
+		}
+	}
+
+	private static RuntimeException unwrap(Throwable t) {
+		while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null)
+			t = t.getCause();
+		return t instanceof RuntimeException ? (RuntimeException) t : new IllegalStateException(t);
+	}
+
+	/**
+	 * Throttling, server side (5xx) and transport errors (SDK client: I/O, timeouts) are endpoint issues, eligible 
+	 * for fail over. Anything else (e.g. codec errors, bugs) would fail on every endpoint, it's re-thrown.
+	 */
+	static boolean isFailoverError(Throwable e) {
+		if (e instanceof AwsServiceException) {
+			AwsServiceException se = (AwsServiceException) e;
+			return se.isThrottlingException() || se.statusCode() >= 500;
+		}
+		return e instanceof SdkClientException || e instanceof UncheckedIOException;
+	}
+
+	@Override
+	public void destroy() {
+		hedgeExecutor.shutdownNow();
+	}
+
+	/**
+	 * Response body with the endpoint that produced it
+	 */
+	public static class RoutedResponse {
+		final ModelEndpoint endpoint;
+		final byte[] body;
+
+		RoutedResponse(ModelEndpoint endpoint, byte[] body) {
+			this.endpoint = endpoint;
+			this.body = body;
+		}
+
+		public ModelEndpoint getEndpoint() {
+			return endpoint;
+		}
+		public byte[] getBody() {
+			return body;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://github.com/paul-prasanta
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pras.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Bulk read / write of a Redis cache, for list pages which would otherwise look up entries one {@code @Cacheable} call 
+ * (one round trip, one deserialization) at a time.
+ * <p>
+ * <b>Read:</b> All keys with a single MGET, values are deserialized in parallel above parallel-threshold. 
+ * Misses are loaded by one batch loader call and written back in one pipeline (SET PX). N round trips become 1 (2 with misses).
+ * <p>
+ * <b>Compatibility:</b> Keys are prefixed as RedisCache does ("cacheName::key"), values use the cache's serializer 
+ * (e.g. {@link RedisGsonSerializer}), so bulk reads and {@code @Cacheable} share entries.
+ * <p>
+ * <b>Usage:</b>
+ * <p>
+ * <code>
+ * RedisBulkCache&lt;Long, Post&gt; posts = new RedisBulkCache&lt;&gt;(connectionFactory, "posts", new RedisGsonSerializer(Post.class), Duration.ofHours(1));
+ * <br>
+ * Map&lt;Long, Post&gt; page = posts.getAll(ids, missing -&gt; postRepository.findAllById(missing)...);
+ * </code>
+ * <p>
+ * Redis failures don't fail the read, all keys are loaded by the loader then. Works with any RedisConnectionFactory, 
+ * e.g. one connected to an embedded Redis in tests.
+ * 
+ * @author Prasanta Paul
+ */
+public class RedisBulkCache<K, V> {
+
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 64;
+
+	Logger logger = LoggerFactory.getLogger(getClass());
+
+	final String keyPrefix;
+	final RedisSerializer serializer;
+	final Duration ttl;
+	final int parallelThreshold;
+	final ForkJoinPool pool;
+	final RedisTemplate<byte[], byte[]> template;
+
+	public RedisBulkCache(RedisConnectionFactory connectionFactory, String cacheName, RedisSerializer serializer, Duration ttl) {
+		this(connectionFactory, cacheName, serializer, ttl, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param ttl Expiry of written entries (zero: no expiry)
+	 * @param parallelThreshold Values are (de)serialized in parallel (pool) from this count
+	 */
+	public RedisBulkCache(RedisConnectionFactory connectionFactory, String cacheName, RedisSerializer serializer, Duration ttl,
+			int parallelThreshold, ForkJoinPool pool) {
+		this.keyPrefix = CacheKeyPrefix.simple().compute(cacheName);
+		this.serializer = serializer;
+		this.ttl = ttl;
+		this.parallelThreshold = parallelThreshold;
+		this.pool = pool;
+		
+		// Raw bytes, (de)serialization is done here
+		template = new RedisTemplate<>();
+		template.setConnectionFactory(connectionFactory);
+		template.setEnableDefaultSerializer(false);
+		template.afterPropertiesSet();
+	}
+
+	/**
+	 * Cached values of keys (single MGET), misses are absent
+	 */
+	public Map<K, V> getAll(Collection<K> keys) {
+		List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+		Map<K, V> result = new LinkedHashMap<>();
+		if (distinct.isEmpty())
+			return result;
+		
+		List<byte[]> raw;
+		try {
+			raw = template.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(rawKeys(distinct)));
+		} catch (RuntimeException e) {
+			logger.warn("Bulk cache read failed: {}", e.getMessage());
+			return result;
+		}
+		
+		Object[] values = deserialize(raw);
+		for (int i = 0; i < distinct.size(); i++) {
+			if (values[i] != null)
+				result.put(distinct.get(i), (V) values[i]);
+		}
+		logger.debug("Bulk cache read: {} keys, {} hits", distinct.size(), result.size());
+		return result;
+	}
+
+	/**
+	 * Cached values of keys, misses are loaded with one loader call and cached (single pipeline). 
+	 * Result follows key order, keys unknown to the loader are absent.
+	 */
+	public Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+		Map<K, V> cached = getAll(keys);
+		Set<K> missing = new LinkedHashSet<>(keys);
+		missing.removeAll(cached.keySet());
+		if (missing.isEmpty())
+			return cached;
+		
+		Map<K, V> loaded = loader.apply(Collections.unmodifiableSet(missing));
+		putAll(loaded);
+		
+		Map<K, V> result = new LinkedHashMap<>();
+		for (K key : keys) {
+			V value = cached.containsKey(key) ? cached.get(key) : loaded.get(key);
+			if (value != null)
+				result.put(key, value);
+		}
+		return result;
+	}
+
+	/**
+	 * Write values in a single pipeline (null values are skipped)
+	 */
+	public void putAll(Map<K, V> values) {
+		List<K> keys = new ArrayList<>();
+		for (Map.Entry<K, V> entry : values.entrySet()) {
+			if (entry.getValue() != null)
+				keys.add(entry.getKey());
+		}
+		if (keys.isEmpty())
+			return;
+		
+		byte[][] rawKeys = rawKeys(keys);
+		byte[][] rawValues = new byte[keys.size()][];
+		forEach(keys.size(), i -> rawValues[i] = serializer.serialize(values.get(keys.get(i))));
+		Expiration expiration = ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl);
+		try {
+			template.executePipelined((RedisCallback<Object>) connection -> {
+				for (int i = 0; i < rawKeys.length; i++)
+					connection.stringCommands().set(rawKeys[i], rawValues[i], expiration, SetOption.upsert());
+				return null;
+			});
+		} catch (RuntimeException e) {
+			logger.warn("Bulk cache write failed: {}", e.getMessage());
+		}
+	}
+
+	private Object[] deserialize(List<byte[]> raw) {
+		Object[] values = new Object[raw.size()];
+		forEach(raw.size(), i -> {
+			byte[] bytes = raw.get(i);
+			if (bytes == null)
+				return;
+			try {
+				values[i] = serializer.deserialize(bytes);
+			} catch (RuntimeException e) {
+				// Unreadable entry (e.g. changed model), treated as miss
+				logger.debug("Bulk cache entry skipped: {}", e.getMessage());
+			}
+		});
+		return values;
+	}
+
+	// Parallel from threshold, each index is written by one task only
+	private void forEach(int count, IntConsumer action) {
+		if (count < parallelThreshold) {
+			for (int i = 0; i < count; i++)
+				action.accept(i);
+			return;
+		}
+		pool.submit(() -> IntStream.range(0, count).parallel().forEach(action)).join();
+	}
+
+	private byte[][] rawKeys(List<K> keys) {
+		byte[][] rawKeys = new byte[keys.size()][];
+		for (int i = 0; i < rawKeys.length; i++)
+			rawKeys[i] = (keyPrefix + keys.get(i)).getBytes(StandardCharsets.UTF_8);
+		return rawKeys;
+	}
+}
@@ -88,15 +88,18 @@ public class RedisGsonSerializer implements RedisSerializer {
 	
 	@Override
 	public byte[] serialize(Object value) throws SerializationException {
-		logger.info("<< GSON Serializaion >>...{}", value);
+		logger.debug("<< GSON Serializaion >>...{}", value);
 		return gson.toJson(value).getBytes();
 	}
 
 	@Override
 	public Object deserialize(byte[] bytes) throws SerializationException {
+		// Missing key
+		if (bytes == null)
+			return null;
 		try {
 			String s = new String(bytes, "UTF-8");
-			logger.info("<< GSON DeSerializaion >>...{} / {}", type, s);
+			logger.debug("<< GSON DeSerializaion >>...{} / {}", type, s);
 			return gson.fromJson(s, this.type);
 			
 		} catch (JsonSyntaxException e) {
@@ -113,17 +116,21 @@ public class RedisGsonSerializer implements RedisSerializer {
 	private class UtcIsoDateAdapter implements JsonSerializer<Date>, JsonDeserializer<Date> {
 		// ISO Date format with milliseconds (SSS e.g. 000), timezone offsets (XXX e.g. +05:30)
 		final String ISO_DATE_FROMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
-		final SimpleDateFormat dateFormat;
+		// SimpleDateFormat isn't thread safe, values may be (de)serialized in parallel (RedisBulkCache)
+		final ThreadLocal<SimpleDateFormat> dateFormat;
 		
 		public UtcIsoDateAdapter() {
-			dateFormat = new SimpleDateFormat(ISO_DATE_FROMAT, Locale.getDefault());
-			dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+			dateFormat = ThreadLocal.withInitial(() -> {
+				SimpleDateFormat format = new SimpleDateFormat(ISO_DATE_FROMAT, Locale.getDefault());
+				format.setTimeZone(TimeZone.getTimeZone("UTC"));
+				return format;
+			});
 		}
 		
 		@Override
 		public JsonElement serialize(Date src, Type typeOfSrc, JsonSerializationContext context) {
-			String ds = dateFormat.format(src);
-			logger.info("< Serialize Date > {} / {}", src, ds);
+			String ds = dateFormat.get().format(src);
+			logger.debug("< Serialize Date > {} / {}", src, ds);
 			return new JsonPrimitive(ds);
 		}
 		
@@ -131,8 +138,8 @@ public class RedisGsonSerializer implements RedisSerializer {
 		public Date deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
 			try {
 				String ds = json.getAsString();
-				logger.info("< Deserialize Date > {}", ds);
-				return dateFormat.parse(json.getAsString());
+				logger.debug("< Deserialize Date > {}", ds);
+				return dateFormat.get().parse(json.getAsString());
 				
 			} catch (ParseException e) {
 				throw new JsonParseException(e);
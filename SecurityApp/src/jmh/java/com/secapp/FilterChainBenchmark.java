@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.secapp.config.Users;
+import com.secapp.config.UsersRepository;
+import com.secapp.jwt.JwtUtility;
+
+/**
+ * Throughput and p99 latency of /api/protected (JwtFilter, signature verification, JPA user lookup) 
+ * with platform vs virtual Tomcat threads, at increasing concurrency.
+ * <p>
+ * Embedded H2 (MySQL mode) stands in for MySQL, claims and user caches are disabled so each request 
+ * verifies the token and loads the user. Virtual threads need Java 21+ runtime, skipped on older JVM.
+ * <p>
+ * Run: mvn -Pbenchmark test-compile exec:exec@filter-chain 
+ * (options: -Dbench.concurrency=16,64,256,1024 -Dbench.duration=10s)
+ */
+public class FilterChainBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int[] levels = Arrays.stream(System.getProperty("bench.concurrency", "16,64,256").split(","))
+				.mapToInt(l -> Integer.parseInt(l.trim())).toArray();
+		Duration duration = Duration.parse("PT" + System.getProperty("bench.duration", "10s"));
+		
+		List<String> report = new ArrayList<>();
+		report.add(String.format("%-9s %8s %12s %10s %8s", "threads", "clients", "req/s", "p99 ms", "errors"));
+		run(false, levels, duration, report);
+		if (Runtime.version().feature() >= 21)
+			run(true, levels, duration, report);
+		else
+			report.add("virtual   skipped (Java " + Runtime.version().feature() + ", requires 21+)");
+		
+		report.forEach(System.out::println);
+	}
+
+	private static void run(boolean virtual, int[] levels, Duration duration, List<String> report) throws Exception {
+		ConfigurableApplicationContext context = SpringApplication.run(SecurityAppApplication.class,
+				"--spring.threads.virtual.enabled=" + virtual,
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:bench-" + virtual + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+				"--spring.datasource.driverClassName=org.h2.Driver",
+				"--spring.datasource.username=sa",
+				"--spring.datasource.password=",
+				"--spring.datasource.hikari.maximum-pool-size=50",
+				"--com.secapp.jwt.secret=benchmark-secret-benchmark-secret-0123456789",
+				"--com.secapp.jwt.claims-cache.max-size=0",
+				"--com.secapp.user-cache.max-size=0",
+				"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+				"--com.secapp.rate-limit.enabled=false",
+				"--logging.level.root=WARN");
+		try {
+			Users user = new Users();
+			user.setUserName("bench");
+			user.setPassword("bench");
+			user.setRole(Users.Role.ROLE_ADMIN);
+			context.getBean(UsersRepository.class).save(user);
+			
+			String token = context.getBean(JwtUtility.class).generateToken(Map.of(), "bench", 60 * 60 * 1000);
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			URI uri = URI.create("http://localhost:" + port + "/api/protected");
+			
+			// Warm up
+			load(uri, token, 16, Duration.ofSeconds(3));
+			for (int clients : levels) {
+				Result result = load(uri, token, clients, duration);
+				report.add(String.format("%-9s %8d %12.0f %10.2f %8d", virtual ? "virtual" : "platform", clients, 
+						result.throughput, result.p99Millis, result.errors));
+			}
+		} finally {
+			context.close();
+		}
+	}
+
+	private static Result load(URI uri, String token, int clients, Duration duration) throws Exception {
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(10)).build();
+		HttpRequest request = HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token).GET().build();
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		long end = System.nanoTime() + duration.toNanos();
+		
+		List<Future<long[]>> workers = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			workers.add(executor.submit(() -> {
+				long[] latencies = new long[1024];
+				int count = 0;
+				int errors = 0;
+				while (System.nanoTime() < end) {
+					long start = System.nanoTime();
+					try {
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						if (response.statusCode() != 200)
+							errors++;
+					} catch (Exception e) {
+						errors++;
+					}
+					if (count == latencies.length)
+						latencies = Arrays.copyOf(latencies, count * 2);
+					latencies[count++] = System.nanoTime() - start;
+				}
+				// Last slot: error count
+				long[] result = Arrays.copyOf(latencies, count + 1);
+				result[count] = errors;
+				return result;
+			}));
+		}
+		
+		long[] all = new long[0];
+		long errors = 0;
+		for (Future<long[]> worker : workers) {
+			long[] result = worker.get();
+			int count = result.length - 1;
+			errors += result[count];
+			int offset = all.length;
+			all = Arrays.copyOf(all, offset + count);
+			System.arraycopy(result, 0, all, offset, count);
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		
+		Arrays.sort(all);
+		Result result = new Result();
+		result.throughput = all.length / (duration.toNanos() / 1e9);
+		result.p99Millis = all.length == 0 ? 0 : all[(int) Math.min(all.length - 1, Math.ceil(all.length * 0.99) - 1)] / 1e6;
+		result.errors = errors;
+		return result;
+	}
+
+	private static class Result {
+		double throughput;
+		double p99Millis;
+		long errors;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Column encryption throughput: per call Cipher lookup (previous CryptoConverter) vs {@link CryptoEngine}.
+ * <p>
+ * Run: mvn -Pbenchmark verify (options: -Djmh.args="-t 8 CryptoEngineBenchmark")
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CryptoEngineBenchmark {
+
+	@Param({ "1000" })
+	int rows;
+
+	private final byte[] secret = "SecurityApp@2024".getBytes(StandardCharsets.UTF_8);
+	private CryptoEngine engine;
+	private List<String> plain;
+	private List<String> legacyEncrypted;
+	private List<String> gcmEncrypted;
+
+	@Setup
+	public void setup() throws Exception {
+		engine = new CryptoEngine(secret);
+		plain = new ArrayList<>(rows);
+		legacyEncrypted = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			String value = "password-" + i;
+			plain.add(value);
+			legacyEncrypted.add(legacyEncrypt(value));
+		}
+		gcmEncrypted = engine.encryptAll(plain);
+	}
+
+	@Benchmark
+	public List<String> legacyDecryptPerCall() throws Exception {
+		List<String> result = new ArrayList<>(rows);
+		for (String value : legacyEncrypted) {
+			Key key = new SecretKeySpec(secret, "AES");
+			Cipher c = Cipher.getInstance("AES/ECB/PKCS5Padding");
+			c.init(Cipher.DECRYPT_MODE, key);
+			result.add(new String(c.doFinal(Base64.getDecoder().decode(value))));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<String> engineDecryptLegacy() throws Exception {
+		return engine.decryptAll(legacyEncrypted);
+	}
+
+	@Benchmark
+	public List<String> engineDecryptGcm() throws Exception {
+		return engine.decryptAll(gcmEncrypted);
+	}
+
+	@Benchmark
+	public List<String> engineEncryptGcm() throws Exception {
+		return engine.encryptAll(plain);
+	}
+
+	private String legacyEncrypt(String value) throws Exception {
+		Cipher c = Cipher.getInstance("AES/ECB/PKCS5Padding");
+		c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(secret, "AES"));
+		return Base64.getEncoder().encodeToString(c.doFinal(value.getBytes()));
+	}
+}
@@ -15,15 +15,32 @@
  */
 package com.secapp;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.secapp.config.LoginUtilityService;
-import com.secapp.config.Users;
+import com.secapp.config.AuthenticatedUser;
+import com.secapp.jwt.JwtKeyRing;
+import com.secapp.jwt.JwtUtility;
+import com.secapp.jwt.TokenService;
+
+import io.jsonwebtoken.JwtException;
 
 @RequestMapping("/api")
 @RestController
@@ -32,7 +49,11 @@ public class ApiController {
 	String SCREEN_LABEL = "Security App - API Home [%s] [%s]";
 	
 	@Autowired
-	LoginUtilityService loginUtilityService;
+	JwtKeyRing keyRing;
+	@Autowired
+	JwtUtility jwtUtility;
+	@Autowired
+	TokenService tokenService;
 	
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -43,10 +64,61 @@ public class ApiController {
 		return label;
 	}
 	
+	/**
+	 * Public keys (JWK Set) to verify tokens issued by this app. Empty for HS256.
+	 */
+	@GetMapping("/open/jwks")
+	public ResponseEntity<String> jwks() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+				.body(keyRing.jwks());
+	}
+	
+	/**
+	 * New access token (and rotated refresh token) for a refresh token, body: {"refresh_token": "..."}. 
+	 * Response follows OAuth 2.0 token response (RFC 6749, 5.1/5.2).
+	 */
+	@PostMapping("/open/token")
+	public ResponseEntity<Map<String, Object>> refreshToken(@RequestBody Map<String, String> request) {
+		Map<String, Object> body = new LinkedHashMap<>();
+		String refreshToken = request.get("refresh_token");
+		if (refreshToken == null) {
+			body.put("error", "invalid_request");
+			return ResponseEntity.badRequest().body(body);
+		}
+		
+		try {
+			TokenService.IssuedTokens tokens = tokenService.refresh(refreshToken);
+			body.put("access_token", tokens.getAccessToken());
+			body.put("token_type", "Bearer");
+			body.put("expires_in", tokens.getExpiresIn());
+			body.put("refresh_token", tokens.getRefreshToken());
+			return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(body);
+			
+		} catch (JwtException | AuthenticationException e) {
+			logger.debug("Token refresh rejected: {}", e.getMessage());
+			body.put("error", "invalid_grant");
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).cacheControl(CacheControl.noStore()).body(body);
+		}
+	}
+	
+	/**
+	 * Revoke caller's token and its refresh token (logout), rejected on all nodes after revocation sync
+	 */
+	@PostMapping("/token/revoke")
+	public ResponseEntity<Void> revokeToken(@RequestHeader("Authorization") String authHeader,
+			@AuthenticationPrincipal AuthenticatedUser user) {
+		jwtUtility.revokeToken(authHeader.substring(7));
+		tokenService.revoke(user.getUsername());
+		return ResponseEntity.noContent().build();
+	}
+	
+	// Principal is resolved in servlet and reactive mode, entity isn't loaded
 	@GetMapping("/protected")
-	public String protectedApi() {
-		Users user = loginUtilityService.getLoggedInUser();
-		String label = String.format(SCREEN_LABEL, "PROTECTED-API", user.getUserName() + " / " + user.getRole());
+	public String protectedApi(@AuthenticationPrincipal AuthenticatedUser user) {
+		String role = user.getAuthorities().isEmpty() ? null : user.getAuthorities().iterator().next().getAuthority();
+		String label = String.format(SCREEN_LABEL, "PROTECTED-API", user.getUsername() + " / " + role);
 		logger.info("Request - " + label);
 		return label;
 	}
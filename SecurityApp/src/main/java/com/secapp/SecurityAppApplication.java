@@ -2,8 +2,12 @@ package com.secapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // JWT key rotation
+@ImportRuntimeHints(SecurityAppRuntimeHints.class) // Native image
 public class SecurityAppApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import com.secapp.config.CryptoConverter;
+import com.secapp.config.Users;
+import com.secapp.config.UsersChangeListener;
+
+/**
+ * Native image (-Pnative) hints for reflection and resources Spring AOT doesn't detect.
+ * <p>
+ * <b>JJWT:</b> jjwt-api loads its implementation (builders, algorithm registries) by class name. 
+ * <b>Hibernate:</b> Entity, attribute converter and entity listener are instantiated / accessed by Hibernate. 
+ * <b>Ehcache:</b> ehcache.xml is resolved by {@link com.secapp.config.CacheConfiguration}.
+ */
+public class SecurityAppRuntimeHints implements RuntimeHintsRegistrar {
+
+	private static final String[] JJWT_TYPES = {
+			"io.jsonwebtoken.impl.DefaultClaimsBuilder",
+			"io.jsonwebtoken.impl.DefaultJwtBuilder",
+			"io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+			"io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+			"io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+			"io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+			"io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+			"io.jsonwebtoken.impl.security.DefaultJwkSetBuilder",
+			"io.jsonwebtoken.impl.security.DefaultJwkSetParserBuilder",
+			"io.jsonwebtoken.impl.security.DefaultKeyOperationBuilder",
+			"io.jsonwebtoken.impl.security.DefaultKeyOperationPolicyBuilder",
+			"io.jsonwebtoken.impl.security.JwksBridge",
+			"io.jsonwebtoken.impl.security.KeysBridge",
+			"io.jsonwebtoken.impl.security.StandardCurves",
+			"io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+			"io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+			"io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+			"io.jsonwebtoken.impl.security.StandardKeyOperations",
+			"io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+			// ServiceLoader (META-INF/services)
+			"io.jsonwebtoken.jackson.io.JacksonSerializer",
+			"io.jsonwebtoken.jackson.io.JacksonDeserializer"
+	};
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		for (String type : JJWT_TYPES)
+			hints.reflection().registerTypeIfPresent(classLoader, type, 
+					MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+		
+		hints.reflection().registerType(Users.class, MemberCategory.DECLARED_FIELDS, 
+				MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+		hints.reflection().registerType(CryptoConverter.class, 
+				MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+		hints.reflection().registerType(UsersChangeListener.class, 
+				MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+		
+		hints.resources().registerPattern("ehcache.xml");
+	}
+}
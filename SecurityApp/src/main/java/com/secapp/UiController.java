@@ -15,9 +15,6 @@
  */
 package com.secapp;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,7 +25,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 
 import com.secapp.config.LoginUtilityService;
 import com.secapp.config.Users;
-import com.secapp.jwt.JwtUtility;
+import com.secapp.jwt.TokenService;
 
 @RequestMapping("/")
 @Controller
@@ -37,7 +34,7 @@ public class UiController {
 	String SCREEN_LABEL = "Security App - UI [%s]";
 	
 	@Autowired
-	JwtUtility jwtUtility;
+	TokenService tokenService;
 	@Autowired
 	LoginUtilityService loginUtilityService;
 	
@@ -69,16 +66,11 @@ public class UiController {
 		if (user != null) {
 			model.addAttribute("userName", user.getUserName());
 			
-			// Generate JWT Token for API requests
-			Map<String, String> extras = new HashMap<String, String>();
-			extras.put("data-1", "sample");
-			int expiryInterval = 24 * 60 * 60 * 1000;
-			
-			String token = jwtUtility.generateToken(extras, user.getUserName(), expiryInterval);
-			
-			logger.info("JWT Token: "+ token);
+			// JWT Token for API requests, re-used till near expiry (renewed with refresh token at /api/open/token)
+			TokenService.IssuedTokens tokens = tokenService.currentTokens(user);
 			
-			model.addAttribute("jwtToken", token);
+			model.addAttribute("jwtToken", tokens.getAccessToken());
+			model.addAttribute("refreshToken", tokens.getRefreshToken());
 		}
 		
 		return "home";
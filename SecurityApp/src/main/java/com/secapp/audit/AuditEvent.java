@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.audit;
+
+/**
+ * Structured security audit event. Immutable, created on request thread and formatted by {@link AuditLog} writer.
+ * Must not carry secrets (tokens, passwords), writer redacts token-like values as safety net.
+ */
+public class AuditEvent {
+
+	public static enum Type {
+		TOKEN_AUTHENTICATED, TOKEN_REJECTED, NO_TOKEN, TOKEN_ISSUED, TOKEN_REVOKED, LOGIN_SUCCESS, LOGIN_FAILURE;
+	}
+
+	final Type type;
+	final long timestamp;
+	final String userName;
+	final String detail;
+
+	public AuditEvent(Type type, String userName, String detail) {
+		this.type = type;
+		this.timestamp = System.currentTimeMillis();
+		this.userName = userName;
+		this.detail = detail;
+	}
+
+	public Type getType() {
+		return type;
+	}
+	public long getTimestamp() {
+		return timestamp;
+	}
+	public String getUserName() {
+		return userName;
+	}
+	public String getDetail() {
+		return detail;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.audit;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Asynchronous security audit log.
+ * <p>
+ * Request threads only sample and enqueue an {@link AuditEvent} into a lock-free ring buffer (no formatting, no I/O). 
+ * Background writer drains it in batches, redacts secrets and writes to "com.secapp.audit" logger.
+ * <p>
+ * <b>Sampling:</b> com.secapp.audit.sample-rates, e.g. "TOKEN_AUTHENTICATED=0.01,NO_TOKEN=0" (default 1, all events).
+ * <p>
+ * <b>Overload:</b> If the buffer is full, events are dropped (secapp.audit.dropped), request path never blocks.
+ */
+@Component
+public class AuditLog {
+
+	// JWT (header.payload.signature) and Bearer values
+	private static final Pattern SECRETS = Pattern.compile("eyJ[\\w-]*\\.[\\w-]*\\.[\\w-]*|(?i)(bearer\\s+)\\S+");
+
+	private final AuditRingBuffer<AuditEvent> buffer;
+	private final Map<AuditEvent.Type, Double> sampleRates = new EnumMap<>(AuditEvent.Type.class);
+	private final int batchSize;
+	private final long idleMillis;
+	private final Thread writer;
+	private volatile boolean running = true;
+	
+	private final Counter dropped;
+	private final Counter written;
+
+	private final Logger auditLogger = LoggerFactory.getLogger("com.secapp.audit");
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public AuditLog(@Value("${com.secapp.audit.buffer-size:8192}") int bufferSize,
+			@Value("${com.secapp.audit.batch-size:256}") int batchSize,
+			@Value("${com.secapp.audit.idle-ms:200}") long idleMillis,
+			@Value("${com.secapp.audit.sample-rates:}") String sampleRates,
+			MeterRegistry meterRegistry) {
+		this.buffer = new AuditRingBuffer<>(bufferSize);
+		this.batchSize = batchSize;
+		this.idleMillis = idleMillis;
+		parseSampleRates(sampleRates);
+		
+		this.dropped = Counter.builder("secapp.audit.dropped").register(meterRegistry);
+		this.written = Counter.builder("secapp.audit.written").register(meterRegistry);
+		Gauge.builder("secapp.audit.pending", buffer, AuditRingBuffer::size).register(meterRegistry);
+		
+		this.writer = new Thread(this::run, "audit-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Record event (sampled). Never blocks.
+	 */
+	public void record(AuditEvent.Type type, String userName, String detail) {
+		Double rate = sampleRates.get(type);
+		if (rate != null && (rate <= 0 || ThreadLocalRandom.current().nextDouble() >= rate))
+			return;
+		if (!buffer.offer(new AuditEvent(type, userName, detail)))
+			dropped.increment();
+	}
+
+	public void record(AuditEvent.Type type, String userName) {
+		record(type, userName, null);
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		running = false;
+		writer.interrupt();
+		writer.join(TimeUnit.SECONDS.toMillis(5));
+	}
+
+	private void run() {
+		List<AuditEvent> batch = new ArrayList<>(batchSize);
+		while (running || buffer.size() > 0) {
+			batch.clear();
+			if (buffer.drainTo(batch, batchSize) == 0) {
+				if (!running)
+					break;
+				try {
+					Thread.sleep(idleMillis);
+				} catch (InterruptedException e) {
+					// Shutdown: drain remaining events
+				}
+				continue;
+			}
+			for (AuditEvent event : batch)
+				write(event);
+			written.increment(batch.size());
+		}
+	}
+
+	private void write(AuditEvent event) {
+		try {
+			auditLogger.info("{} type={} user={} detail={}", Instant.ofEpochMilli(event.timestamp), event.type, 
+					redact(event.userName), redact(event.detail));
+		} catch (RuntimeException e) {
+			logger.error("Failed to write audit event: {}", e.getMessage());
+		}
+	}
+
+	static String redact(String value) {
+		if (value == null)
+			return "-";
+		return SECRETS.matcher(value).replaceAll(m -> m.group(1) != null ? m.group(1) + "[REDACTED]" : "[REDACTED]");
+	}
+
+	private void parseSampleRates(String sampleRates) {
+		for (String entry : sampleRates.split(",")) {
+			int index = entry.lastIndexOf('=');
+			if (index <= 0)
+				continue;
+			this.sampleRates.put(AuditEvent.Type.valueOf(entry.substring(0, index).trim()), 
+					Double.parseDouble(entry.substring(index + 1).trim()));
+		}
+	}
+}
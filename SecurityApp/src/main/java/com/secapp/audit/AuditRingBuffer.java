@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi producer / single consumer ring buffer. Producers never block, 
+ * {@link #offer(Object)} returns false when full.
+ */
+class AuditRingBuffer<T> {
+
+	private final AtomicReferenceArray<T> slots;
+	private final int mask;
+	// Next sequence to claim (producers) / to read (consumer)
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	AuditRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	boolean offer(T item) {
+		long seq;
+		do {
+			seq = head.get();
+			if (seq - tail.get() >= slots.length())
+				return false;
+		} while (!head.compareAndSet(seq, seq + 1));
+		slots.set((int) seq & mask, item);
+		return true;
+	}
+
+	/**
+	 * Move up to max items into "into" (consumer thread only). Stops at a claimed slot not yet published.
+	 */
+	int drainTo(List<T> into, int max) {
+		long seq = tail.get();
+		int count = 0;
+		while (count < max && seq < head.get()) {
+			int index = (int) seq & mask;
+			T item = slots.get(index);
+			if (item == null)
+				break;
+			slots.lazySet(index, null);
+			into.add(item);
+			seq++;
+			count++;
+			tail.lazySet(seq);
+		}
+		return count;
+	}
+
+	int size() {
+		return (int) (head.get() - tail.get());
+	}
+}
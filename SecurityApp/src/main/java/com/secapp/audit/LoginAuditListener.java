@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.audit;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Audit of form login (authentication events published by Spring Security)
+ */
+@Component
+public class LoginAuditListener {
+
+	private final AuditLog auditLog;
+
+	public LoginAuditListener(AuditLog auditLog) {
+		this.auditLog = auditLog;
+	}
+
+	@EventListener
+	public void onSuccess(AuthenticationSuccessEvent event) {
+		auditLog.record(AuditEvent.Type.LOGIN_SUCCESS, event.getAuthentication().getName());
+	}
+
+	@EventListener
+	public void onFailure(AbstractAuthenticationFailureEvent event) {
+		auditLog.record(AuditEvent.Type.LOGIN_FAILURE, event.getAuthentication().getName(), 
+				event.getException().getClass().getSimpleName());
+	}
+}
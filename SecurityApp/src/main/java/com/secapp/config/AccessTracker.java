@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind tracking of {@link Users#getAccessTime()}.
+ * <p>
+ * Requests only record last access time in memory (latest per user). Scheduled flusher writes pending 
+ * times as JDBC batch update every com.secapp.access-tracking.flush-interval-ms, pending writes are 
+ * flushed on shutdown. DB writes scale with active users per interval, not with request rate.
+ * <p>
+ * Direct JDBC update (no entity load / dirty checking), cached user details keep old access time till TTL.
+ */
+@Component
+public class AccessTracker {
+
+	private static final String UPDATE_SQL = "UPDATE users SET access_time = ? WHERE user_name = ? AND (access_time IS NULL OR access_time < ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final boolean enabled;
+	private final int batchSize;
+	private final Map<String, Long> pending = new ConcurrentHashMap<>();
+	// Lock (not synchronized) around JDBC, doesn't pin virtual threads
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public AccessTracker(JdbcTemplate jdbcTemplate, 
+			@Value("${com.secapp.access-tracking.enabled:true}") boolean enabled,
+			@Value("${com.secapp.access-tracking.batch-size:500}") int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.enabled = enabled;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Record access of authenticated user (request thread, no I/O)
+	 */
+	public void record(String userName) {
+		if (enabled && userName != null)
+			pending.merge(userName, System.currentTimeMillis(), Math::max);
+	}
+
+	@Scheduled(fixedDelayString = "${com.secapp.access-tracking.flush-interval-ms:10000}")
+	public void flush() {
+		if (pending.isEmpty())
+			return;
+		
+		flushLock.lock();
+		try {
+			drain();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void drain() {
+		List<Object[]> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+		for (String userName : pending.keySet()) {
+			// Atomic take, access recorded after this goes to next flush
+			Long time = pending.remove(userName);
+			if (time == null)
+				continue;
+			Timestamp timestamp = new Timestamp(time);
+			batch.add(new Object[] { timestamp, userName, timestamp });
+			if (batch.size() == batchSize) {
+				write(batch);
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+		if (!batch.isEmpty())
+			write(batch);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		flush();
+	}
+
+	private void write(List<Object[]> batch) {
+		try {
+			jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+			logger.debug("Access time flushed: {} users", batch.size());
+		} catch (RuntimeException e) {
+			// Put back for next flush, unless newer access is already recorded
+			for (Object[] row : batch)
+				pending.merge((String) row[1], ((Timestamp) row[0]).getTime(), Math::max);
+			logger.error("Failed to flush access time ({} users): {}", batch.size(), e.getMessage());
+		}
+	}
+}
@@ -16,17 +16,22 @@
 package com.secapp.config;
 
 import java.util.Collection;
+import java.util.function.Supplier;
 
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 
 /**
- * Wrapper class to hold Authenticated User Details and Entity instance
+ * Wrapper class to hold Authenticated User Details and Entity instance.
+ * <p>
+ * Stateless (JWT claims) authentication doesn't load the entity, it's loaded on first {@link #getUser()} call.
  */
 public class AuthenticatedUser extends User {
 
 	private static final long serialVersionUID = 1L;
 	private Users user;
+	// Lazy entity loader (stateless authentication)
+	private transient Supplier<Users> userLoader;
 	
 	public AuthenticatedUser(Users user, Collection<? extends GrantedAuthority> authorities) {
 		super(user.getUserName(), user.getPassword(), authorities);
@@ -40,7 +45,17 @@ public class AuthenticatedUser extends User {
 		this.user = user;
 	}
 
+	// Principal built from verified token claims, no password
+	public AuthenticatedUser(String userName, Collection<? extends GrantedAuthority> authorities, Supplier<Users> userLoader) {
+		super(userName, "", authorities);
+		this.userLoader = userLoader;
+	}
+
 	public Users getUser() {
+		if (user == null && userLoader != null) {
+			user = userLoader.get();
+			userLoader = null;
+		}
 		return user;
 	}
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.io.IOException;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Hibernate second-level cache configuration (ehcache.xml).
+ */
+@Configuration
+public class CacheConfiguration {
+
+	// Resolved to file / jar URI, "classpath:" URLs need Tomcat's URL handler (not available on Netty)
+	@Bean
+	public HibernatePropertiesCustomizer cacheConfigCustomizer() throws IOException {
+		String uri = new ClassPathResource("ehcache.xml").getURI().toString();
+		return properties -> properties.putIfAbsent("hibernate.javax.cache.uri", uri);
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.util.WebUtils;
+
+import com.secapp.jwt.JwtUtility;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Security context of form login in a signed cookie instead of HttpSession (com.secapp.session-cookie.enabled). 
+ * Any node can serve any request, no sticky sessions or session replication, no session heap per user.
+ * <p>
+ * Cookie value is a JWT (token_use=session, user ID and Role claims) signed by {@link JwtUtility}'s key ring. 
+ * Verified tokens are cached, restoring the context doesn't hit the DB (entity is loaded lazily, as in stateless JWT mode).
+ * <p>
+ * <b>Validity:</b> Absolute (com.secapp.session-cookie.validity), role changes take effect with next login. 
+ * Logout revokes the token (jti), a copied cookie can't be replayed.
+ */
+public class CookieSecurityContextRepository implements SecurityContextRepository {
+
+	private final JwtUtility jwtUtility;
+	private final LoginUtilityService loginUtilityService;
+	private final String cookieName;
+	private final Duration validity;
+	private final boolean secure;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public CookieSecurityContextRepository(JwtUtility jwtUtility, LoginUtilityService loginUtilityService, 
+			String cookieName, Duration validity, boolean secure) {
+		this.jwtUtility = jwtUtility;
+		this.loginUtilityService = loginUtilityService;
+		this.cookieName = cookieName;
+		this.validity = validity;
+		this.secure = secure;
+	}
+
+	// Cookie is verified lazily, only for requests that need authentication
+	@Override
+	public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+		return new CookieDeferredContext(request);
+	}
+
+	@Override
+	@Deprecated
+	public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+		return loadDeferredContext(requestResponseHolder.getRequest()).get();
+	}
+
+	// Context of a valid session cookie, else null
+	private SecurityContext readContext(HttpServletRequest request) {
+		Claims claims = verifiedClaims(request);
+		if (claims == null)
+			return null;
+		
+		SecurityContext context = SecurityContextHolder.getContextHolderStrategy().createEmptyContext();
+		Number userId = claims.get(JwtUtility.CLAIM_USER_ID, Number.class);
+		AuthenticatedUser user = loginUtilityService.fromClaims(claims.getSubject(), userId != null ? userId.longValue() : null, 
+				Users.Role.valueOf(claims.get(JwtUtility.CLAIM_ROLE, String.class)));
+		context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+		return context;
+	}
+
+	@Override
+	public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+		Authentication authentication = context.getAuthentication();
+		if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+			if (containsContext(request))
+				writeCookie(response, "", Duration.ZERO);
+			return;
+		}
+		
+		Map<String, Object> claims = new HashMap<>();
+		claims.put(JwtUtility.CLAIM_TOKEN_USE, JwtUtility.TOKEN_USE_SESSION);
+		if (authentication.getPrincipal() instanceof AuthenticatedUser principal && principal.getUser() != null)
+			claims.put(JwtUtility.CLAIM_USER_ID, principal.getUser().getId());
+		for (GrantedAuthority authority : authentication.getAuthorities())
+			claims.put(JwtUtility.CLAIM_ROLE, authority.getAuthority());
+		
+		writeCookie(response, jwtUtility.generateToken(claims, authentication.getName(), validity.toMillis()), validity);
+	}
+
+	@Override
+	public boolean containsContext(HttpServletRequest request) {
+		return WebUtils.getCookie(request, cookieName) != null;
+	}
+
+	/**
+	 * Logout: revoke token of the cookie. Cookie is removed by saving the cleared context.
+	 */
+	public void revoke(HttpServletRequest request) {
+		Cookie cookie = WebUtils.getCookie(request, cookieName);
+		if (cookie == null)
+			return;
+		try {
+			jwtUtility.revokeToken(cookie.getValue());
+		} catch (JwtException | IllegalArgumentException e) {
+			logger.debug("Session cookie not revoked: {}", e.getMessage());
+		}
+	}
+
+	private Claims verifiedClaims(HttpServletRequest request) {
+		Cookie cookie = WebUtils.getCookie(request, cookieName);
+		if (cookie == null || cookie.getValue().isEmpty())
+			return null;
+		try {
+			Claims claims = jwtUtility.getVerifiedClaims(cookie.getValue());
+			// Verified claims are cached past expiry, access tokens aren't accepted as session
+			if (claims.getExpiration().before(new Date()) 
+					|| !JwtUtility.TOKEN_USE_SESSION.equals(claims.get(JwtUtility.CLAIM_TOKEN_USE, String.class))
+					|| claims.get(JwtUtility.CLAIM_ROLE) == null)
+				return null;
+			return claims;
+			
+		} catch (JwtException e) {
+			logger.debug("Invalid session cookie: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	private void writeCookie(HttpServletResponse response, String value, Duration maxAge) {
+		ResponseCookie cookie = ResponseCookie.from(cookieName, value)
+				.path("/")
+				.httpOnly(true)
+				.secure(secure)
+				.sameSite("Lax")
+				.maxAge(maxAge)
+				.build();
+		response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+	}
+
+	/**
+	 * Resolved once on first access. Without a valid cookie: empty, generated context (nothing to save back).
+	 */
+	private final class CookieDeferredContext implements DeferredSecurityContext {
+
+		private final HttpServletRequest request;
+		private SecurityContext context;
+		private boolean generated;
+
+		CookieDeferredContext(HttpServletRequest request) {
+			this.request = request;
+		}
+
+		@Override
+		public SecurityContext get() {
+			if (context == null) {
+				context = readContext(request);
+				if (context == null) {
+					context = SecurityContextHolder.getContextHolderStrategy().createEmptyContext();
+					generated = true;
+				}
+			}
+			return context;
+		}
+
+		@Override
+		public boolean isGenerated() {
+			get();
+			return generated;
+		}
+	}
+}
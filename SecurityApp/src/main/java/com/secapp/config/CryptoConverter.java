@@ -15,42 +15,45 @@
  */
 package com.secapp.config;
 
-import java.security.Key;
-import java.util.Base64;
-
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 
 /**
- * Converter class to Encode data before storing into Database and Decode while retrieving data from Database
+ * Converter class to Encode data before storing into Database and Decode while retrieving data from Database.
+ * Encryption is done by shared {@link CryptoEngine} (AES-GCM, legacy AES-ECB values are still readable).
  */
 @Converter
 public class CryptoConverter implements AttributeConverter<String, String> {
 	
 	// Secrete Key for encryption
-	final String SECRETE_KEY = "SecurityApp@2024";
-	// Encryption algorithm
-	final String ENC = "AES";
-	final String ALGORITHM = "AES/ECB/PKCS5Padding";
+	static final String SECRETE_KEY = "SecurityApp@2024";
+	// Key derived once, shared by all converter instances
+	static final CryptoEngine ENGINE = new CryptoEngine(SECRETE_KEY.getBytes(StandardCharsets.UTF_8));
+	
+	// Converter is created by Hibernate, timers use global registry (Actuator registry is added to it)
+	static final Timer ENCRYPT_TIMER = Timer.builder("secapp.crypto.encrypt").register(Metrics.globalRegistry);
+	static final Timer DECRYPT_TIMER = Timer.builder("secapp.crypto.decrypt").register(Metrics.globalRegistry);
 	
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
 	@Override
 	public String convertToDatabaseColumn(String attribute) {
 		// Encode data to store into database
-		logger.info("Convert Application data to Database: {}", attribute);
+		// Values are not logged (credentials)
+		logger.debug("Convert Application data to Database");
 		String value = null;
 		try {
-			Key key = new SecretKeySpec(SECRETE_KEY.getBytes(), ENC);
-			Cipher c = Cipher.getInstance(ALGORITHM);
-			c.init(Cipher.ENCRYPT_MODE, key);
-			value = Base64.getEncoder().encodeToString(c.doFinal(attribute.getBytes()));
+			long start = System.nanoTime();
+			value = ENGINE.encrypt(attribute);
+			ENCRYPT_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 			
 		} catch(Exception e) {
 			logger.info("Failed to encode: "+ e.getMessage());
@@ -62,13 +65,12 @@ public class CryptoConverter implements AttributeConverter<String, String> {
 	@Override
 	public String convertToEntityAttribute(String dbData) {
 		// Decode data to use in Application
-		logger.info("Convert Datbase to Application data: {}", dbData);
+		logger.debug("Convert Datbase to Application data");
 		String value = null;
 		try {
-			Key key = new SecretKeySpec(SECRETE_KEY.getBytes(), ENC);
-			Cipher c = Cipher.getInstance(ALGORITHM);
-			c.init(Cipher.DECRYPT_MODE, key);
-			value = new String(c.doFinal(Base64.getDecoder().decode(dbData)));
+			long start = System.nanoTime();
+			value = ENGINE.decrypt(dbData);
+			DECRYPT_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 			
 		} catch(Exception e) {
 			logger.info("Failed to decode: "+ e.getMessage());
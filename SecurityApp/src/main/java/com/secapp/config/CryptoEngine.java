@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Column encryption engine. Key is derived once, {@link Cipher} instances are pooled (bounded, not per thread: 
+ * virtual threads would create one per request) and re-initialized per call (JCE provider lookup is the expensive part).
+ * <p>
+ * <b>Format:</b> "v1:" + Base64(IV[12] + ciphertext + GCM tag[16]), AES-GCM with random IV. 
+ * Values without version prefix are legacy AES/ECB, still decrypted; they are re-encrypted with 
+ * AES-GCM on next write.
+ * <p>
+ * Thread safe.
+ */
+public class CryptoEngine {
+
+	static final String VERSION_PREFIX = "v1:";
+	private static final String GCM = "AES/GCM/NoPadding";
+	private static final String ECB = "AES/ECB/PKCS5Padding";
+	private static final int IV_LENGTH = 12;
+	private static final int TAG_BITS = 128;
+
+	private final SecretKey key;
+	private final CipherPool gcmCipher;
+	private final CipherPool ecbCipher;
+	private final SecureRandom random = new SecureRandom(); // Thread safe
+
+	public CryptoEngine(byte[] key) {
+		this.key = new SecretKeySpec(key, "AES");
+		int maxIdle = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+		this.gcmCipher = new CipherPool(GCM, maxIdle);
+		this.ecbCipher = new CipherPool(ECB, maxIdle);
+	}
+
+	public String encrypt(String plain) throws GeneralSecurityException {
+		if (plain == null)
+			return null;
+		
+		byte[] iv = new byte[IV_LENGTH];
+		random.nextBytes(iv);
+		
+		Cipher c = gcmCipher.borrow();
+		try {
+			c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+			byte[] input = plain.getBytes(StandardCharsets.UTF_8);
+			ByteBuffer out = ByteBuffer.allocate(IV_LENGTH + c.getOutputSize(input.length));
+			out.put(iv);
+			c.doFinal(ByteBuffer.wrap(input), out);
+			return VERSION_PREFIX + Base64.getEncoder().encodeToString(out.array());
+		} finally {
+			gcmCipher.release(c);
+		}
+	}
+
+	public String decrypt(String encrypted) throws GeneralSecurityException {
+		if (encrypted == null)
+			return null;
+		
+		if (!encrypted.startsWith(VERSION_PREFIX)) {
+			// Legacy AES/ECB
+			Cipher c = ecbCipher.borrow();
+			try {
+				c.init(Cipher.DECRYPT_MODE, key);
+				return new String(c.doFinal(Base64.getDecoder().decode(encrypted)), StandardCharsets.UTF_8);
+			} finally {
+				ecbCipher.release(c);
+			}
+		}
+		
+		byte[] data = Base64.getDecoder().decode(encrypted.substring(VERSION_PREFIX.length()));
+		Cipher c = gcmCipher.borrow();
+		try {
+			c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+			return new String(c.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+		} finally {
+			gcmCipher.release(c);
+		}
+	}
+
+	public boolean isLegacy(String encrypted) {
+		return encrypted != null && !encrypted.startsWith(VERSION_PREFIX);
+	}
+
+	/**
+	 * Bulk encryption (batch jobs), same order as input
+	 */
+	public List<String> encryptAll(List<String> values) throws GeneralSecurityException {
+		List<String> result = new ArrayList<>(values.size());
+		for (String value : values)
+			result.add(encrypt(value));
+		return result;
+	}
+
+	/**
+	 * Bulk decryption (batch jobs), same order as input
+	 */
+	public List<String> decryptAll(List<String> values) throws GeneralSecurityException {
+		List<String> result = new ArrayList<>(values.size());
+		for (String value : values)
+			result.add(decrypt(value));
+		return result;
+	}
+
+	/**
+	 * Lock-free pool of initialized ciphers. Borrowed cipher is used by one caller only, at most maxIdle are kept.
+	 */
+	private static class CipherPool {
+		final String algorithm;
+		final int maxIdle;
+		final Queue<Cipher> idle = new ConcurrentLinkedQueue<>();
+		final AtomicInteger idleCount = new AtomicInteger();
+
+		CipherPool(String algorithm, int maxIdle) {
+			this.algorithm = algorithm;
+			this.maxIdle = maxIdle;
+		}
+
+		Cipher borrow() {
+			Cipher c = idle.poll();
+			if (c != null) {
+				idleCount.decrementAndGet();
+				return c;
+			}
+			try {
+				return Cipher.getInstance(algorithm);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("Cipher not available: " + algorithm, e);
+			}
+		}
+
+		void release(Cipher c) {
+			if (idleCount.incrementAndGet() <= maxIdle)
+				idle.offer(c);
+			else
+				idleCount.decrementAndGet();
+		}
+	}
+}
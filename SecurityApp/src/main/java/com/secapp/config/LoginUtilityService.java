@@ -17,7 +17,6 @@ package com.secapp.config;
 
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -28,6 +27,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Login utility service to create and retrieve authenticated user instance 
@@ -37,29 +37,77 @@ public class LoginUtilityService {
 
 	@Autowired
 	UsersRepository usersRepository;
+	@Autowired
+	UserDetailsCache userDetailsCache;
 
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
 	public AuthenticatedUser findMatch(String username) {
-		List<Users> users = usersRepository.findByUserName(username);
-		if (users == null || users.size() == 0) {
-			logger.info("User not found: " + username);
+		Users user = userDetailsCache.get(username, this::loadUser);
+		if (user == null) {
+			logger.debug("User not found: {}", username);
 			throw new UsernameNotFoundException("UserName " + username + " doesn't exists");
 		}
 
-		Users user = users.get(0);
+		// Entity isn't logged (password)
+		logger.debug("User found: {}", username);
+
+		return toAuthenticatedUser(user);
+	}
+
+	public AuthenticatedUser toAuthenticatedUser(Users user) {
+		return new AuthenticatedUser(user, authorities(user.getRole()));
+	}
+
+	/**
+	 * Authenticated user from verified JWT claims (stateless mode), no DB lookup. 
+	 * Entity is loaded only if business logic asks for it ({@link #getLoggedInUser()}).
+	 */
+	public AuthenticatedUser fromClaims(String username, Long userId, Users.Role role) {
+		return new AuthenticatedUser(username, authorities(role), () -> {
+			Users user = userId != null ? usersRepository.findById(userId).orElse(null) : null;
+			return user != null ? user : loadUser(username);
+		});
+	}
+
+	/**
+	 * Authenticated user from ID and Role projection (password column isn't read). Used for tokens without role claim 
+	 * in stateless mode.
+	 */
+	public AuthenticatedUser findIdentity(String username) {
+		UsersRepository.UserIdentity identity = usersRepository.findIdentityByUserName(username)
+				.orElseThrow(() -> new UsernameNotFoundException("UserName " + username + " doesn't exists"));
+		return fromClaims(username, identity.getId(), identity.getRole());
+	}
 
-		logger.info("User Instance: " + user);
+	/**
+	 * Store re-hashed password (hash upgrade after successful login). Cached entry is invalidated by {@link UsersChangeListener}.
+	 */
+	@Transactional
+	public AuthenticatedUser updatePassword(String username, String encodedPassword) {
+		Users user = loadUser(username);
+		if (user == null)
+			throw new UsernameNotFoundException("UserName " + username + " doesn't exists");
+		
+		user.setPassword(encodedPassword);
+		usersRepository.save(user);
+		logger.info("Password hash upgraded: {}", username);
+		return new AuthenticatedUser(user, authorities(user.getRole()));
+	}
 
+	private Users loadUser(String username) {
+		// Second-level cache, then unique index
+		return usersRepository.findByNaturalId(username).orElse(null);
+	}
+
+	private Set<GrantedAuthority> authorities(Users.Role role) {
 		// For multiple content level access, use content-level permissions for each role 
 		// Mapping: USER entity - (1-n) Role entity - (1-n) Permission entity
 		GrantedAuthority authority = () -> {
-			return user.getRole().name();
+			return role.name();
 		};
 
-		Set<GrantedAuthority> authorities = new HashSet<GrantedAuthority>(Arrays.asList(authority));
-
-		return new AuthenticatedUser(user, authorities);
+		return new HashSet<GrantedAuthority>(Arrays.asList(authority));
 	}
 
 	// Get currently logged in user's entity instance (for business logic)
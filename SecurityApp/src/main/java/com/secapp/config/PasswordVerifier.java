@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Password encoder running adaptive hash (BCrypt) verification on a dedicated, bounded executor.
+ * <p>
+ * <b>Backpressure:</b> At most "threads" hashes run in parallel, "queue" logins wait. When the queue is full, 
+ * or the result isn't ready within "timeout", login is rejected immediately (AuthenticationServiceException) 
+ * instead of piling up request threads. Login bursts can't take CPU from other endpoints.
+ * <p>
+ * <b>Cost:</b> BCrypt strength is tuned at startup, highest strength (10-14) hashing within target latency. 
+ * <p>
+ * <b>Upgrade:</b> Hashes are stored as "{bcrypt}...". Legacy plain values (no prefix) still match, 
+ * {@link #upgradeEncoding(String)} makes Spring Security re-hash them on successful login 
+ * (also BCrypt hashes with lower strength).
+ */
+public class PasswordVerifier implements PasswordEncoder {
+
+	private static final int MIN_STRENGTH = 10;
+	private static final int MAX_STRENGTH = 14;
+
+	private final PasswordEncoder delegate;
+	private final ThreadPoolExecutor executor;
+	private final long timeoutMillis;
+	private final Timer verifyTimer;
+	private final Counter rejected;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public PasswordVerifier(int strength, Duration targetLatency, int threads, int queueSize, Duration timeout, 
+			MeterRegistry meterRegistry) {
+		int cost = strength > 0 ? strength : tuneStrength(targetLatency);
+		logger.info("BCrypt strength: {}", cost);
+		
+		DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of(
+				"bcrypt", new BCryptPasswordEncoder(cost),
+				"noop", NoOpPasswordEncoder.getInstance()));
+		// Legacy values without {id} prefix are plain text
+		encoder.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+		this.delegate = encoder;
+		
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+			Thread t = new Thread(r, "password-verify-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}, new ThreadPoolExecutor.AbortPolicy());
+		this.timeoutMillis = timeout.toMillis();
+		
+		this.verifyTimer = Timer.builder("secapp.password.verify").register(meterRegistry);
+		this.rejected = Counter.builder("secapp.password.rejected").register(meterRegistry);
+		meterRegistry.gauge("secapp.password.queue", executor, e -> e.getQueue().size());
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return run(() -> delegate.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return run(() -> delegate.matches(rawPassword, encodedPassword));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private <T> T run(Callable<T> task) {
+		Future<T> future;
+		try {
+			future = executor.submit(() -> verifyTimer.recordCallable(task));
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new AuthenticationServiceException("Too many login attempts, try again later");
+		}
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			rejected.increment();
+			throw new AuthenticationServiceException("Login timed out, try again later");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException("Login interrupted");
+		} catch (ExecutionException e) {
+			throw new AuthenticationServiceException("Password verification failed", e.getCause());
+		}
+	}
+
+	// Highest strength with hash time within target latency (measured on this host)
+	private int tuneStrength(Duration targetLatency) {
+		int chosen = MIN_STRENGTH;
+		new BCryptPasswordEncoder(MIN_STRENGTH).encode("warm-up");
+		for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+			BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+			long start = System.nanoTime();
+			encoder.encode("calibration");
+			long elapsed = System.nanoTime() - start;
+			logger.debug("BCrypt strength {}: {} ms", strength, elapsed / 1_000_000);
+			if (elapsed > targetLatency.toNanos())
+				break;
+			chosen = strength;
+		}
+		return chosen;
+	}
+}
@@ -16,6 +16,11 @@
  
 package com.secapp.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -23,13 +28,21 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 
 import com.secapp.jwt.JwtFilter;
+import com.secapp.jwt.JwtUtility;
+import com.secapp.jwt.TokenService;
+import com.secapp.ratelimit.RateLimitFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Customized security configurations to protect end points.
@@ -38,16 +51,22 @@ import com.secapp.jwt.JwtFilter;
  * https://spring.io/blog/2022/02/21/spring-security-without-the-websecurityconfigureradapter
  */
 @Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @EnableWebSecurity // Enable Web Security Support (via HttpSecurity)
 public class SecurityConfiguration {
 	
 	JwtFilter jwtFilter;
 	LoginUtilityService loginUtilityService;
+	AccessTracker accessTracker;
+	RateLimitFilter rateLimitFilter;
 	
-	public SecurityConfiguration(JwtFilter jwtFilter, LoginUtilityService loginUtilityService) {
+	public SecurityConfiguration(JwtFilter jwtFilter, LoginUtilityService loginUtilityService, AccessTracker accessTracker,
+			RateLimitFilter rateLimitFilter) {
 		// Auto inject dependent beans
 		this.jwtFilter = jwtFilter;
 		this.loginUtilityService = loginUtilityService;
+		this.accessTracker = accessTracker;
+		this.rateLimitFilter = rateLimitFilter;
 	}
 
 	// Security Filter Chain for API
@@ -63,7 +82,9 @@ public class SecurityConfiguration {
 					request.anyRequest().authenticated();
 				})
 				.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+				.csrf(csrf -> csrf.disable()) // Bearer token in header (not cookie), CSRF doesn't apply
 				//.httpBasic(Customizer.withDefaults()) // Basic Authentication (Disable)
+				.addFilterBefore(rateLimitFilter, SecurityContextHolderFilter.class) // Rate limits, before any authentication work
 				.addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class) // Filter to process JWT
 				.build();
 	}
@@ -71,7 +92,16 @@ public class SecurityConfiguration {
 	// Security Filter Chain for Web Pages
 	@Bean
 	@Order(2)
-	public SecurityFilterChain formSecurityFilterChain(HttpSecurity http) throws Exception {
+	public SecurityFilterChain formSecurityFilterChain(HttpSecurity http, CookieSecurityContextRepository cookieRepository,
+			TokenService tokenService, @Value("${com.secapp.session-cookie.enabled:false}") boolean cookieSession) throws Exception {
+		if (cookieSession) {
+			// Security context and CSRF token in cookies, no HttpSession
+			http.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+				.securityContext(context -> context.securityContextRepository(cookieRepository))
+				.csrf(csrf -> csrf.csrfTokenRepository(new CookieCsrfTokenRepository()))
+				.logout(logoutConfig -> logoutConfig.addLogoutHandler((request, response, auth) -> cookieRepository.revoke(request)));
+		}
+		
 		// Form Login for Web Pages
 		return http.authorizeHttpRequests(request -> {
 			request.requestMatchers("/").permitAll();
@@ -80,10 +110,26 @@ public class SecurityConfiguration {
 			request.anyRequest().authenticated();
 		})
 		.formLogin((formLoginConfig) -> formLoginConfig.defaultSuccessUrl("/protected", true))
-		.logout(logoutConfig -> logoutConfig.logoutSuccessUrl("/"))
+		.logout(logoutConfig -> logoutConfig.logoutSuccessUrl("/")
+				.addLogoutHandler((request, response, auth) -> {
+					// API tokens shown on the home page (access and refresh)
+					if (auth != null)
+						tokenService.revoke(auth.getName());
+				}))
+		.addFilterBefore(rateLimitFilter, SecurityContextHolderFilter.class) // Rate limits (login attempts), before session and DB lookup
+		.addFilterAfter(new AccessTrackingFilter(accessTracker), AnonymousAuthenticationFilter.class) // Track access time (write-behind)
 		.build();
 	}
 	
+	// Signed cookie security context (session-less form login)
+	@Bean
+	public CookieSecurityContextRepository cookieSecurityContextRepository(JwtUtility jwtUtility,
+			@Value("${com.secapp.session-cookie.name:SECAPP_SESSION}") String cookieName,
+			@Value("${com.secapp.session-cookie.validity:8h}") Duration validity,
+			@Value("${com.secapp.session-cookie.secure:true}") boolean secure) {
+		return new CookieSecurityContextRepository(jwtUtility, loginUtilityService, cookieName, validity, secure);
+	}
+	
 	// Ignore selected URIs from security checks
 	@Bean
     public WebSecurityCustomizer webSecurityCustomizer() {
@@ -100,10 +146,23 @@ public class SecurityConfiguration {
 		return userDetailsService;
 	}
 	
-	// Password encoder
+	// Re-hash legacy / weaker passwords after successful login
 	@Bean
-    public PasswordEncoder getPasswordEncoder() {
-        return NoOpPasswordEncoder.getInstance();
+	public UserDetailsPasswordService userDetailsPasswordService() {
+		return (user, newPassword) -> {
+			return loginUtilityService.updatePassword(user.getUsername(), newPassword);
+		};
+	}
+	
+	// Password encoder (BCrypt on bounded executor)
+	@Bean(destroyMethod = "shutdown")
+    public PasswordEncoder getPasswordEncoder(@Value("${com.secapp.password.bcrypt-strength:0}") int strength,
+    		@Value("${com.secapp.password.target-latency:100ms}") Duration targetLatency,
+    		@Value("${com.secapp.password.threads:2}") int threads,
+    		@Value("${com.secapp.password.queue-size:50}") int queueSize,
+    		@Value("${com.secapp.password.timeout:3s}") Duration timeout,
+    		MeterRegistry meterRegistry) {
+        return new PasswordVerifier(strength, targetLatency, threads, queueSize, timeout, meterRegistry);
     }
 	
 	// TODO: Enable CORS for JWT 
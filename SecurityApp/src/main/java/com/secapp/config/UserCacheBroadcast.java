@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcast of user changes to invalidate cached user details on all nodes.
+ * <p>
+ * Default is {@link InMemoryUserCacheBroadcast} (single node, tests). For multiple nodes register a 
+ * bean backed by a message channel (Redis pub/sub, JMS etc).
+ */
+public interface UserCacheBroadcast {
+
+	/**
+	 * Notify all nodes (including this one) that user is changed
+	 */
+	void publish(String userName);
+
+	/**
+	 * Register listener for changed user names
+	 */
+	void subscribe(Consumer<String> listener);
+}
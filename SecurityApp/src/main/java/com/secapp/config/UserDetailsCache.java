@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Bounded, TTL based cache of users in front of {@link UsersRepository#findByUserName(String)}.
+ * <p>
+ * <b>Invalidation:</b> {@link UsersChangeListener} publishes changed user names to {@link UserCacheBroadcast}, 
+ * each node drops its entry and its Hibernate second-level cache Users entries (entity and natural ID regions are 
+ * local per node, the entity would be re-loaded stale from it). TTL (com.secapp.user-cache.ttl) limits staleness 
+ * if a change is missed (e.g. direct DB update), second-level cache TTL (ehcache.xml) must not be longer.
+ * <p>
+ * Entity snapshot is cached, each lookup gets its own copy. Spring Security erases credentials of 
+ * authenticated principal, a shared instance would lose its password.
+ * <p>
+ * <b>Metrics:</b> secapp.user.cache{result=hit|miss}, secapp.user.cache.evictions, secapp.user.cache.size
+ */
+@Component
+public class UserDetailsCache {
+
+	private final int maxSize;
+	private final long ttlMillis;
+	private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+	private final UserCacheBroadcast broadcast;
+	private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter evictions;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public UserDetailsCache(@Value("${com.secapp.user-cache.max-size:10000}") int maxSize,
+			@Value("${com.secapp.user-cache.ttl:5m}") Duration ttl, 
+			ObjectProvider<UserCacheBroadcast> broadcast, ObjectProvider<EntityManagerFactory> entityManagerFactory, 
+			MeterRegistry meterRegistry) {
+		this.maxSize = maxSize;
+		this.entityManagerFactory = entityManagerFactory;
+		this.ttlMillis = ttl.toMillis();
+		this.broadcast = broadcast.getIfAvailable(InMemoryUserCacheBroadcast::new);
+		this.broadcast.subscribe(this::evict);
+		
+		this.hits = Counter.builder("secapp.user.cache").tag("result", "hit").register(meterRegistry);
+		this.misses = Counter.builder("secapp.user.cache").tag("result", "miss").register(meterRegistry);
+		this.evictions = Counter.builder("secapp.user.cache.evictions").register(meterRegistry);
+		Gauge.builder("secapp.user.cache.size", cache, Map::size).register(meterRegistry);
+	}
+
+	/**
+	 * Cached user (copy) or load it. Null results are not cached.
+	 */
+	public Users get(String userName, Function<String, Users> loader) {
+		if (maxSize <= 0)
+			return loader.apply(userName);
+		
+		long now = System.currentTimeMillis();
+		Entry entry = cache.get(userName);
+		if (entry != null && entry.expiresAt > now) {
+			hits.increment();
+			return copy(entry.user);
+		}
+		misses.increment();
+		
+		Users user = loader.apply(userName);
+		if (user == null)
+			return null;
+		
+		if (cache.size() >= maxSize)
+			evictExpired(now);
+		cache.put(userName, new Entry(copy(user), now + ttlMillis));
+		return user;
+	}
+
+	/**
+	 * Cached user (copy), null if not cached. Memory only, no loading.
+	 */
+	public Users getIfPresent(String userName) {
+		Entry entry = cache.get(userName);
+		if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+			hits.increment();
+			return copy(entry.user);
+		}
+		return null;
+	}
+
+	/**
+	 * Invalidate user on all nodes
+	 */
+	public void invalidate(String userName) {
+		broadcast.publish(userName);
+	}
+
+	// Local eviction (broadcast listener)
+	void evict(String userName) {
+		if (cache.remove(userName) != null) {
+			evictions.increment();
+			logger.debug("User cache evicted: {}", userName);
+		}
+		evictSecondLevel(userName);
+	}
+
+	// Entity ID of the user isn't known here (other node), whole Users regions are dropped. Users changes are rare.
+	private void evictSecondLevel(String userName) {
+		EntityManagerFactory emf = entityManagerFactory.getIfAvailable();
+		if (emf == null)
+			return;
+		try {
+			Cache cache = emf.unwrap(SessionFactory.class).getCache();
+			cache.evictEntityData(Users.class);
+			cache.evictNaturalIdData(Users.class);
+		} catch (RuntimeException e) {
+			logger.warn("Failed to evict second-level cache for user {}: {}", userName, e.getMessage());
+		}
+	}
+
+	private void evictExpired(long now) {
+		cache.values().removeIf(e -> e.expiresAt <= now);
+		// Still full, drop ~10% (arbitrary entries)
+		int toRemove = cache.size() - maxSize + Math.max(1, maxSize / 10);
+		Iterator<String> it = cache.keySet().iterator();
+		while (toRemove-- > 0 && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions.increment();
+		}
+	}
+
+	private static Users copy(Users user) {
+		Users copy = new Users();
+		copy.id = user.id;
+		copy.userName = user.userName;
+		copy.password = user.password;
+		copy.role = user.role;
+		copy.accessTime = user.accessTime;
+		return copy;
+	}
+
+	private static class Entry {
+		final Users user;
+		final long expiresAt;
+
+		Entry(Users user, long expiresAt) {
+			this.user = user;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -17,15 +17,31 @@ package com.secapp.config;
 
 import java.util.Date;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
-@Table(name = "users")
+/**
+ * User entity. "userName" is natural ID (unique index, db/migration), lookups by ID and user name 
+ * are served from Hibernate second-level cache (ehcache.xml).
+ */
+@Table(name = "users", indexes = @Index(name = "ux_users_user_name", columnList = "userName", unique = true))
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
+@EntityListeners(UsersChangeListener.class) // Invalidate cached user details
 public class Users {
 	
 	public static enum Role {
@@ -36,6 +52,7 @@ public class Users {
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	Long id;
 	
+	@NaturalId(mutable = true)
 	String userName;
 	
 	@Convert(converter = CryptoConverter.class)
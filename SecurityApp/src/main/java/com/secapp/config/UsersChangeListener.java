@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA entity listener, invalidates cached user details when a {@link Users} row changes. 
+ * Hibernate resolves it as Spring bean (constructor injection).
+ * <p>
+ * Callbacks run at flush, before commit. Invalidation (local and broadcast) is deferred till commit, otherwise 
+ * a concurrent lookup could re-cache the old committed row for the full TTL. Rolled back changes aren't broadcast.
+ */
+@Component
+public class UsersChangeListener {
+
+	private final UserDetailsCache userDetailsCache;
+
+	public UsersChangeListener(@Lazy UserDetailsCache userDetailsCache) {
+		this.userDetailsCache = userDetailsCache;
+	}
+
+	@PostUpdate
+	@PostRemove
+	public void onChange(Users user) {
+		String userName = user.getUserName();
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			userDetailsCache.invalidate(userName);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				userDetailsCache.invalidate(userName);
+			}
+		});
+	}
+}
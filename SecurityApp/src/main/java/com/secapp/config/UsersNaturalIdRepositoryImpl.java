@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.config;
+
+import java.util.Optional;
+
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Spring Data fragment implementation of {@link UsersNaturalIdRepository}
+ */
+public class UsersNaturalIdRepositoryImpl implements UsersNaturalIdRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	// Transaction keeps unwrapped session open
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Users> findByNaturalId(String userName) {
+		return entityManager.unwrap(Session.class)
+				.bySimpleNaturalId(Users.class)
+				.loadOptional(userName);
+	}
+}
@@ -16,11 +16,26 @@
 package com.secapp.config;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface UsersRepository extends JpaRepository<Users, Long> {
+/**
+ * Users repository. Auth lookups should use {@link #findByNaturalId(String)} (second-level cache, unique index) 
+ * or {@link #findIdentityByUserName(String)} when only ID and Role are required.
+ */
+public interface UsersRepository extends JpaRepository<Users, Long>, UsersNaturalIdRepository {
 	
 	public List<Users> findByUserName(String userName);
 
+	// ID and Role only, password column isn't read / decrypted
+	public Optional<UserIdentity> findIdentityByUserName(String userName);
+
+	/**
+	 * Projection of {@link Users} for callers which need ID and Role only
+	 */
+	public interface UserIdentity {
+		Long getId();
+		Users.Role getRole();
+	}
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * JWT authentication pipeline instrumentation (Micrometer). Exposed through Actuator - /actuator/metrics/{name}
+ * <p>
+ * <b>Metrics:</b>
+ * <p>
+ * secapp.auth.stage{stage=header|verify|lookup|context} - Time per stage: header parse, signature verification 
+ * (or claims cache hit), user lookup, security context setup
+ * <p>
+ * secapp.auth.outcome{outcome} - authenticated, no_header, expired, bad_signature, malformed, revoked, unknown_user, error
+ * <p>
+ * secapp.auth.claims.cached - Requests served from verified claims cache (no signature verification)
+ * <p>
+ * secapp.crypto.decrypt, secapp.crypto.encrypt - Column encryption time ({@link com.secapp.config.CryptoConverter})
+ */
+@Component
+public class AuthMetrics {
+
+	public static final String STAGE_HEADER = "header";
+	public static final String STAGE_VERIFY = "verify";
+	public static final String STAGE_LOOKUP = "lookup";
+	public static final String STAGE_CONTEXT = "context";
+
+	public static final String AUTHENTICATED = "authenticated";
+	public static final String NO_HEADER = "no_header";
+	public static final String EXPIRED = "expired";
+	public static final String BAD_SIGNATURE = "bad_signature";
+	public static final String MALFORMED = "malformed";
+	public static final String REVOKED = "revoked";
+	public static final String UNKNOWN_USER = "unknown_user";
+	public static final String ERROR = "error";
+
+	private final MeterRegistry meterRegistry;
+	private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+	private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+	private final Counter claimsCached;
+
+	public AuthMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+		this.claimsCached = Counter.builder("secapp.auth.claims.cached").register(meterRegistry);
+	}
+
+	public void recordStage(String stage, long nanos) {
+		stageTimers.computeIfAbsent(stage, s -> Timer.builder("secapp.auth.stage").tag("stage", s)
+				.publishPercentiles(0.5, 0.99).register(meterRegistry))
+				.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordOutcome(String outcome) {
+		outcomes.computeIfAbsent(outcome, o -> Counter.builder("secapp.auth.outcome").tag("outcome", o).register(meterRegistry))
+				.increment();
+	}
+
+	public void recordFailure(Throwable e) {
+		recordOutcome(outcomeOf(e));
+	}
+
+	void recordClaimsCached() {
+		claimsCached.increment();
+	}
+
+	public static String outcomeOf(Throwable e) {
+		if (e instanceof ExpiredJwtException)
+			return EXPIRED;
+		if (e instanceof SignatureException)
+			return BAD_SIGNATURE;
+		if (e instanceof RevokedTokenException)
+			return REVOKED;
+		if (e instanceof MalformedJwtException)
+			return MALFORMED;
+		if (e instanceof UsernameNotFoundException)
+			return UNKNOWN_USER;
+		return ERROR;
+	}
+}
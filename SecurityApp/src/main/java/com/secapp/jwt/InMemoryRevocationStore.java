@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In process {@link RevocationStore} (single node, tests). Expired entries are dropped on write.
+ */
+public class InMemoryRevocationStore implements RevocationStore {
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final ConcurrentSkipListMap<Long, Revocation> revocations = new ConcurrentSkipListMap<>();
+
+	@Override
+	public void revoke(String jti, long expiresAtMillis) {
+		long now = System.currentTimeMillis();
+		revocations.values().removeIf(r -> r.expiresAtMillis <= now);
+		long seq = sequence.incrementAndGet();
+		revocations.put(seq, new Revocation(seq, jti, expiresAtMillis));
+	}
+
+	@Override
+	public List<Revocation> changesSince(long sequence) {
+		return new ArrayList<>(revocations.tailMap(sequence, false).values());
+	}
+}
@@ -16,9 +16,13 @@
 package com.secapp.jwt;
 
 import java.io.IOException;
+import java.util.Date;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -28,8 +32,13 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
+import com.secapp.audit.AuditEvent;
+import com.secapp.audit.AuditLog;
+import com.secapp.config.AccessTracker;
 import com.secapp.config.LoginUtilityService;
+import com.secapp.config.Users;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -41,28 +50,42 @@ import jakarta.servlet.http.HttpServletResponse;
  * 
  * Process flow: 
  * 1. Check request header for presence of Bearer Token 
- * 2. Read token, verify and extract claims (or metadata) 
- * 3. Check authentication state using "username" found in claims
- * 4. If not yet authenticated 
- * 4.1. Retrieve UserDetails instance from DB using "username" 
- * 4.2. Create Authentication instance using UsernamePasswordAuthenticationToken 
- * 4.3. Store Authentication Token in SecurityContext for Application to use
+ * 2. Read token, verify and extract claims (or metadata), verified claims are cached till token expiry 
+ * 3. Record access time of "username" ({@link AccessTracker}, write-behind)
+ * 4. Check authentication state using "username" found in claims
+ * 5. If not yet authenticated 
+ * 5.1. Retrieve UserDetails instance from DB using "username" (stateless mode: build it from "uid" and "role" claims, 
+ * user entity is loaded only if business logic asks for it) 
+ * 5.2. Create Authentication instance using UsernamePasswordAuthenticationToken 
+ * 5.3. Store Authentication Token in SecurityContext for Application to use
+ * 
+ * Stage timings and outcomes are recorded in {@link AuthMetrics}, audit events in {@link AuditLog} (asynchronous).
  */
 @Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class JwtFilter extends OncePerRequestFilter {
 
 	JwtUtility jwtUtility;
 	LoginUtilityService loginUtilityService;
 	HandlerExceptionResolver handlerExceptionResolver;
+	AccessTracker accessTracker;
+	AuthMetrics authMetrics;
+	AuditLog auditLog;
+	// Authenticate from token claims without DB lookup
+	boolean stateless;
 
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 
 	public JwtFilter(JwtUtility jwtUtility, LoginUtilityService loginUtilityService,
-			HandlerExceptionResolver handlerExceptionResolver) {
+			HandlerExceptionResolver handlerExceptionResolver, AccessTracker accessTracker, AuthMetrics authMetrics, AuditLog auditLog, @Value("${com.secapp.jwt.stateless:false}") boolean stateless) {
 		// Auto inject dependent beans
 		this.jwtUtility = jwtUtility;
 		this.loginUtilityService = loginUtilityService;
 		this.handlerExceptionResolver = handlerExceptionResolver;
+		this.accessTracker = accessTracker;
+		this.authMetrics = authMetrics;
+		this.auditLog = auditLog;
+		this.stateless = stateless;
 	}
 
 	@Override
@@ -74,6 +97,8 @@ public class JwtFilter extends OncePerRequestFilter {
 
 		} catch (Exception e) {
 			logger.error("Failed to process JWT Token: {}", e.getMessage());
+			authMetrics.recordFailure(e);
+			auditLog.record(AuditEvent.Type.TOKEN_REJECTED, null, AuthMetrics.outcomeOf(e));
 			// Pass exceptions to response
 			handlerExceptionResolver.resolveException(request, response, null, e);
 		}
@@ -85,43 +110,60 @@ public class JwtFilter extends OncePerRequestFilter {
 	}
 
 	private void processToken(HttpServletRequest request) {
+		long start = System.nanoTime();
 		String authHeader = request.getHeader("Authorization");
 
-		logger.info("Authorization Header: {}", authHeader);
-
 		if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-			logger.info("No Bearer Header, skip processing");
+			logger.debug("No Bearer Header, skip processing");
+			authMetrics.recordOutcome(AuthMetrics.NO_HEADER);
+			auditLog.record(AuditEvent.Type.NO_TOKEN, null, request.getRequestURI());
 			return;
 		}
 
 		// Extract Bearer Token
 		final String jwtToken = authHeader.substring(7);
-
-		if (jwtUtility.isTokenExpired(jwtToken)) {
-			logger.info("Token validity expired");
+		long verifyStart = System.nanoTime();
+		authMetrics.recordStage(AuthMetrics.STAGE_HEADER, verifyStart - start);
+
+		// Single verification per request (cached for repeat tokens)
+		Claims claims = jwtUtility.getAccessClaims(jwtToken);
+		long lookupStart = System.nanoTime();
+		authMetrics.recordStage(AuthMetrics.STAGE_VERIFY, lookupStart - verifyStart);
+
+		if (claims.getExpiration().before(new Date())) {
+			logger.debug("Token validity expired");
+			authMetrics.recordOutcome(AuthMetrics.EXPIRED);
+			auditLog.record(AuditEvent.Type.TOKEN_REJECTED, claims.getSubject(), AuthMetrics.EXPIRED);
 			return;
 		}
 
-		String userName = jwtUtility.getUserName(jwtToken);
+		String userName = claims.getSubject();
 
 		if (userName == null) {
-			logger.info("No username found in JWT Token");
+			logger.debug("No username found in JWT Token");
+			authMetrics.recordOutcome(AuthMetrics.MALFORMED);
+			auditLog.record(AuditEvent.Type.TOKEN_REJECTED, null, AuthMetrics.MALFORMED);
 			return;
 		}
 
-		logger.info("Username found in JWT: " + userName);
+		logger.debug("Username found in JWT: {}", userName);
+		// Last access time, written in batches
+		accessTracker.record(userName);
 
 		// Get existing authentication instance
 		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
 		if (authentication != null) {
-			logger.info("Already loggedin: " + userName);
+			logger.debug("Already loggedin: {}", userName);
 			return;
 		}
 
 		// Authenticate and create authentication instance
-		logger.info("Create authentication instance for {}", userName);
-		UserDetails userDetails = loginUtilityService.findMatch(userName);
+		logger.debug("Create authentication instance for {}", userName);
+		lookupStart = System.nanoTime();
+		UserDetails userDetails = loadUser(userName, claims);
+		long contextStart = System.nanoTime();
+		authMetrics.recordStage(AuthMetrics.STAGE_LOOKUP, contextStart - lookupStart);
 
 		UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null,
 				userDetails.getAuthorities());
@@ -129,5 +171,21 @@ public class JwtFilter extends OncePerRequestFilter {
 		authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 		// Store authentication token for application to use
 		SecurityContextHolder.getContext().setAuthentication(authToken);
+		authMetrics.recordStage(AuthMetrics.STAGE_CONTEXT, System.nanoTime() - contextStart);
+		authMetrics.recordOutcome(AuthMetrics.AUTHENTICATED);
+		auditLog.record(AuditEvent.Type.TOKEN_AUTHENTICATED, userName, request.getRequestURI());
+	}
+
+	private UserDetails loadUser(String userName, Claims claims) {
+		if (!stateless)
+			return loginUtilityService.findMatch(userName);
+		
+		String role = claims.get(JwtUtility.CLAIM_ROLE, String.class);
+		// Tokens without role claim (issued before stateless mode): ID and Role lookup
+		if (role == null)
+			return loginUtilityService.findIdentity(userName);
+		
+		Number userId = claims.get(JwtUtility.CLAIM_USER_ID, Number.class);
+		return loginUtilityService.fromClaims(userName, userId != null ? userId.longValue() : null, Users.Role.valueOf(role));
 	}
 }
@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureException;
+
+/**
+ * Ring of JWT signing keys, identified by "kid" (Key ID) header. Keys are derived once when loaded, 
+ * so sign and verify calls only do a map lookup.
+ * <p>
+ * <b>Algorithm:</b> com.secapp.jwt.algorithm = HS256 (shared secret, default), ES256 or EdDSA (Ed25519). 
+ * Public keys of asymmetric algorithms are published as JWKS (/api/open/jwks), other services verify tokens 
+ * without the secret and without calling this app per request.
+ * <p>
+ * <b>Keys:</b> Initial HS256 key is com.secapp.jwt.secret (kid: com.secapp.jwt.kid). It's also used for 
+ * tokens without "kid" header (issued before key ring). If com.secapp.jwt.keys-file is defined, keys are loaded from it 
+ * (later key in the list is newer), initial key is retired unless listed with same kid.
+ * <p>
+ * <code>
+ * keys=k1,k2<br>
+ * k1.secret=... (HS256)<br>
+ * k2.private-key=/path/k2.pem (PKCS#8 PEM, ES256/EdDSA)<br>
+ * k2.public-key=/path/k2.pub.pem (X.509 PEM, ES256/EdDSA)<br>
+ * k2.activate-at=2025-01-01T00:00:00Z
+ * </code>
+ * <p>
+ * Without keys file, asymmetric key pair is generated at startup and rotated every com.secapp.jwt.rotation.interval 
+ * (single issuer node; use keys file when several nodes issue tokens).
+ * <p>
+ * <b>Rotation:</b> Keys file is re-loaded on schedule (com.secapp.jwt.keys-refresh-ms), no restart required. 
+ * Latest activated key signs new tokens. Pre-staged keys (activate-at in future) already verify, so all 
+ * nodes accept new tokens before any node starts issuing them. A key removed from file keeps verifying 
+ * during overlap window (com.secapp.jwt.rotation.overlap, should be >= token validity), then it's dropped.
+ * <p>
+ * <b>Verifier nodes:</b> If com.secapp.jwt.jwks-uri is defined, keys not found in the ring are resolved from 
+ * issuer's JWKS ({@link RemoteJwks}).
+ */
+@Component
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+	public static final String HS256 = "HS256";
+	public static final String ES256 = "ES256";
+	public static final String EDDSA = "EdDSA";
+
+	private final String algorithm;
+	private final String defaultKid;
+	private final KeyEntry defaultKey;
+	private final Path keysFile;
+	private final Duration overlap;
+	private final Duration rotationInterval;
+	private final RemoteJwks remoteJwks;
+
+	private volatile KeySet keySet;
+	private long keysFileModified = -1;
+	// Lock (not synchronized) around file I/O, doesn't pin virtual threads
+	private final ReentrantLock refreshLock = new ReentrantLock();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public JwtKeyRing(@Value("${com.secapp.jwt.algorithm:HS256}") String algorithm,
+			@Value("${com.secapp.jwt.secret:}") String secret,
+			@Value("${com.secapp.jwt.kid:k1}") String kid,
+			@Value("${com.secapp.jwt.keys-file:}") String keysFile,
+			@Value("${com.secapp.jwt.rotation.overlap:24h}") Duration overlap,
+			@Value("${com.secapp.jwt.rotation.interval:7d}") Duration rotationInterval,
+			@Value("${com.secapp.jwt.jwks-uri:}") String jwksUri,
+			@Value("${com.secapp.jwt.jwks-refresh-min-interval:30s}") Duration jwksRefreshMinInterval) {
+		if (!HS256.equals(algorithm) && !ES256.equals(algorithm) && !EDDSA.equals(algorithm))
+			throw new IllegalArgumentException("Unsupported JWT algorithm: " + algorithm);
+		
+		this.algorithm = algorithm;
+		this.defaultKid = kid;
+		this.defaultKey = secret.isBlank() ? null : KeyEntry.hmac(kid, secret, Instant.EPOCH);
+		this.keysFile = keysFile.isBlank() ? null : Path.of(keysFile);
+		this.overlap = overlap;
+		this.rotationInterval = rotationInterval;
+		this.remoteJwks = jwksUri.isBlank() ? null : new RemoteJwks(jwksUri, jwksRefreshMinInterval);
+
+		if (this.keysFile == null && HS256.equals(algorithm) && defaultKey == null && remoteJwks == null)
+			throw new IllegalStateException("com.secapp.jwt.secret is required for " + HS256);
+
+		Map<String, KeyEntry> initial = new LinkedHashMap<>();
+		if (defaultKey != null)
+			initial.put(kid, defaultKey);
+		this.keySet = new KeySet(initial);
+		refresh();
+	}
+
+	/**
+	 * Key to sign new tokens: latest activated, non retired key. Ties (e.g. keys without activate-at) go to the 
+	 * key listed last (keys file order).
+	 */
+	public KeyEntry signingKey() {
+		Instant now = Instant.now();
+		KeyEntry signing = null;
+		for (KeyEntry entry : keySet.keys.values()) {
+			if (entry.retireAt != null || entry.activateAt.isAfter(now) || entry.signKey == null)
+				continue;
+			if (signing == null || !entry.activateAt.isBefore(signing.activateAt))
+				signing = entry;
+		}
+		if (signing == null)
+			throw new IllegalStateException("No JWT signing key available");
+		return signing;
+	}
+
+	public Map<String, KeyEntry> keys() {
+		return keySet.keys;
+	}
+
+	/**
+	 * Public keys as JWK Set JSON (no HS256 secrets). Built once per key change.
+	 */
+	public String jwks() {
+		return keySet.jwks;
+	}
+
+	// Verification key lookup (called by parser)
+	@Override
+	protected Key locate(JwsHeader header) {
+		String kid = header.getKeyId();
+		KeyEntry entry = keySet.keys.get(kid != null ? kid : defaultKid);
+		if (entry != null)
+			return entry.verifyKey;
+		
+		Key key = remoteJwks != null && kid != null ? remoteJwks.find(kid) : null;
+		if (key == null)
+			throw new SignatureException("Unknown signing key: " + kid);
+		return key;
+	}
+
+	/**
+	 * Re-load keys file, rotate generated keys, retire removed keys and refresh remote JWKS. Runs on schedule, 
+	 * off the request path.
+	 */
+	@Scheduled(fixedDelayString = "${com.secapp.jwt.keys-refresh-ms:60000}", initialDelayString = "${com.secapp.jwt.keys-refresh-ms:60000}")
+	public void refresh() {
+		refreshLock.lock();
+		try {
+			reload();
+		} finally {
+			refreshLock.unlock();
+		}
+		// Independent of local keys (reload returns early when keys file is unchanged)
+		if (remoteJwks != null)
+			remoteJwks.refreshIfStale();
+	}
+
+	private void reload() {
+		Instant now = Instant.now();
+		Map<String, KeyEntry> current = keySet.keys;
+		Map<String, KeyEntry> loaded = new LinkedHashMap<>();
+		
+		if (keysFile != null) {
+			try {
+				long modified = Files.getLastModifiedTime(keysFile).toMillis();
+				if (modified == keysFileModified && !hasExpiredKeys(now))
+					return;
+				keysFileModified = modified;
+				load(loaded);
+			} catch (IOException | RuntimeException e) {
+				// Keep current keys
+				logger.error("Failed to load JWT keys file {}: {}", keysFile, e.getMessage());
+				return;
+			}
+		} else if (HS256.equals(algorithm)) {
+			if (defaultKey != null)
+				loaded.put(defaultKid, defaultKey);
+		} else {
+			// Generated key pair, rotate on interval
+			KeyEntry active = current.values().stream().filter(k -> k.retireAt == null && k.signKey != null).reduce((a, b) -> b).orElse(null);
+			if (active != null && (rotationInterval.isZero() || active.activateAt.plus(rotationInterval).isAfter(now))) {
+				loaded.put(active.kid, active);
+			} else {
+				KeyEntry generated = KeyEntry.asymmetric(algorithm.toLowerCase() + "-" + UUID.randomUUID().toString().substring(0, 8), 
+						generateKeyPair(), now);
+				logger.info("JWT key generated: {}", generated.kid);
+				loaded.put(generated.kid, generated);
+			}
+		}
+
+		Map<String, KeyEntry> next = new LinkedHashMap<>();
+		for (KeyEntry entry : loaded.values()) {
+			KeyEntry existing = current.get(entry.kid);
+			// Reuse derived key if unchanged
+			next.put(entry.kid, existing != null && existing.retireAt == null && existing.sameAs(entry) ? existing : entry);
+		}
+		for (KeyEntry existing : current.values()) {
+			if (next.containsKey(existing.kid))
+				continue;
+			if (existing.retireAt == null) {
+				logger.info("JWT key {} retired, verify only till {}", existing.kid, now.plus(overlap));
+				next.put(existing.kid, existing.retire(now.plus(overlap)));
+			} else if (existing.retireAt.isAfter(now)) {
+				next.put(existing.kid, existing);
+			}
+		}
+		if (!next.equals(current))
+			keySet = new KeySet(next);
+	}
+
+	private KeyPair generateKeyPair() {
+		return ES256.equals(algorithm) ? Jwts.SIG.ES256.keyPair().build() : Jwks.CRV.Ed25519.keyPair().build();
+	}
+
+	private boolean hasExpiredKeys(Instant now) {
+		return keySet.keys.values().stream().anyMatch(k -> k.retireAt != null && !k.retireAt.isAfter(now));
+	}
+
+	private void load(Map<String, KeyEntry> loaded) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = Files.newInputStream(keysFile)) {
+			props.load(in);
+		}
+		for (String kid : props.getProperty("keys", "").split(",")) {
+			kid = kid.trim();
+			if (kid.isEmpty())
+				continue;
+			String activateAt = props.getProperty(kid + ".activate-at");
+			Instant activation = activateAt != null ? Instant.parse(activateAt.trim()) : Instant.EPOCH;
+			
+			String secret = props.getProperty(kid + ".secret");
+			String privateKey = props.getProperty(kid + ".private-key");
+			String publicKey = props.getProperty(kid + ".public-key");
+			if (secret != null) {
+				loaded.put(kid, KeyEntry.hmac(kid, secret, activation));
+			} else if (publicKey != null) {
+				// Private key is optional (verify only key)
+				String keyAlgorithm = ES256.equals(algorithm) ? "EC" : "Ed25519";
+				loaded.put(kid, KeyEntry.asymmetric(kid, new KeyPair(
+						readPublicKey(keyAlgorithm, Path.of(publicKey.trim())),
+						privateKey != null ? readPrivateKey(keyAlgorithm, Path.of(privateKey.trim())) : null), activation));
+			} else {
+				throw new IllegalStateException("No secret or public-key for key: " + kid);
+			}
+		}
+		if (loaded.isEmpty())
+			throw new IllegalStateException("No keys defined");
+	}
+
+	private static PublicKey readPublicKey(String keyAlgorithm, Path pem) throws IOException {
+		try {
+			return KeyFactory.getInstance(keyAlgorithm).generatePublic(new X509EncodedKeySpec(readPem(pem)));
+		} catch (java.security.GeneralSecurityException e) {
+			throw new IllegalStateException("Invalid public key: " + pem, e);
+		}
+	}
+
+	private static PrivateKey readPrivateKey(String keyAlgorithm, Path pem) throws IOException {
+		try {
+			return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(readPem(pem)));
+		} catch (java.security.GeneralSecurityException e) {
+			throw new IllegalStateException("Invalid private key: " + pem, e);
+		}
+	}
+
+	private static byte[] readPem(Path pem) throws IOException {
+		String content = Files.readString(pem, StandardCharsets.US_ASCII)
+				.replaceAll("-----[A-Z ]+-----", "")
+				.replaceAll("\\s", "");
+		return Base64.getDecoder().decode(content);
+	}
+
+	/**
+	 * Immutable snapshot of keys with pre-built JWKS
+	 */
+	private static class KeySet {
+		final Map<String, KeyEntry> keys;
+		final String jwks;
+
+		KeySet(Map<String, KeyEntry> keys) {
+			// Insertion (keys file) order, signing key ties are resolved by it
+			this.keys = Collections.unmodifiableMap(new LinkedHashMap<>(keys));
+			StringBuilder sb = new StringBuilder("{\"keys\":[");
+			boolean first = true;
+			for (KeyEntry entry : keys.values()) {
+				if (entry.jwk == null)
+					continue;
+				sb.append(first ? "" : ",").append(Jwks.json(entry.jwk));
+				first = false;
+			}
+			this.jwks = sb.append("]}").toString();
+		}
+	}
+
+	/**
+	 * Immutable key entry. HS256: same secret key signs and verifies. ES256/EdDSA: private key signs, public key verifies.
+	 */
+	public static class KeyEntry {
+		final String kid;
+		final Key signKey;
+		final Key verifyKey;
+		final PublicJwk<?> jwk;
+		final byte[] material;
+		final Instant activateAt;
+		final Instant retireAt;
+
+		private KeyEntry(String kid, Key signKey, Key verifyKey, PublicJwk<?> jwk, byte[] material, Instant activateAt, Instant retireAt) {
+			this.kid = kid;
+			this.signKey = signKey;
+			this.verifyKey = verifyKey;
+			this.jwk = jwk;
+			this.material = material;
+			this.activateAt = activateAt;
+			this.retireAt = retireAt;
+		}
+
+		static KeyEntry hmac(String kid, String secret, Instant activateAt) {
+			byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+			Key key = Keys.hmacShaKeyFor(bytes);
+			return new KeyEntry(kid, key, key, null, bytes, activateAt, null);
+		}
+
+		static KeyEntry asymmetric(String kid, KeyPair keyPair, Instant activateAt) {
+			PublicJwk<?> jwk = Jwks.builder().key(keyPair.getPublic()).id(kid).build();
+			return new KeyEntry(kid, keyPair.getPrivate(), keyPair.getPublic(), jwk, keyPair.getPublic().getEncoded(), activateAt, null);
+		}
+
+		KeyEntry retire(Instant at) {
+			return new KeyEntry(kid, signKey, verifyKey, jwk, material, activateAt, at);
+		}
+
+		boolean sameAs(KeyEntry other) {
+			return Arrays.equals(material, other.material) && activateAt.equals(other.activateAt) 
+					&& (signKey == null) == (other.signKey == null);
+		}
+
+		public String getKid() {
+			return kid;
+		}
+		public Key getSignKey() {
+			return signKey;
+		}
+	}
+}
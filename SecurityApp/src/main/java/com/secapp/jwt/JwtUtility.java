@@ -16,16 +16,21 @@
 package com.secapp.jwt;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
-
-import javax.crypto.SecretKey;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.secapp.audit.AuditEvent;
+import com.secapp.audit.AuditLog;
+import com.secapp.config.Users;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.MalformedJwtException;
 
 /**
  * JWT (JSON Web Token) Utility class to manage token generation, verification and metadata extraction.
@@ -33,7 +38,8 @@ import io.jsonwebtoken.security.Keys;
  * JWT consists of 3 parts = [header].[payload].[signature]. Payload contains Claims which 
  * includes subject (username or ID), expiry time, additional business specific meta data etc.
  * 
- * Secrete Key (SHA-256 Hash) is used to verify tokens against content tempering.
+ * Secrete Key (SHA-256 Hash) or ES256/EdDSA key pair is used to verify tokens against content tempering. Keys are managed 
+ * by {@link JwtKeyRing} (rotation without restart), each token carries "kid" header of its signing key.
  * 
  * @see JWT Specification: https://jwt.io/
  * @see JWT Library: https://github.com/jwtk/jjwt
@@ -48,47 +54,144 @@ public class JwtUtility {
 	 * Key: "Key2024"
 	 * Algorithm: SHA-256 Hash (in Hex)
 	 */
-	@Value("${com.secapp.jwt.secret}")
-	private String SECRET_KEY;
+	// Claims for stateless authentication (com.secapp.jwt.stateless)
+	public static final String CLAIM_USER_ID = "uid";
+	public static final String CLAIM_ROLE = "role";
+	// Refresh tokens and session cookies carry token_use claim and are rejected for API access
+	public static final String CLAIM_TOKEN_USE = "token_use";
+	public static final String TOKEN_USE_REFRESH = "refresh";
+	public static final String TOKEN_USE_SESSION = "session";
+	
+	// Signing keys (com.secapp.jwt.secret and rotated keys)
+	private final JwtKeyRing keyRing;
+	// Immutable, thread safe parser. Verification key is selected by "kid" header from key ring
+	private final JwtParser parser;
+	
+	// Verified claims cache (0 to disable)
+	private final VerifiedClaimsCache claimsCache;
+	// Revoked token IDs (jti)
+	private final TokenRevocationList revocationList;
+	private final AuthMetrics authMetrics;
+	private final AuditLog auditLog;
 	
-	public String generateToken(Map<String, String> extraClaims, String userName, long expireInterval) {
+	public JwtUtility(JwtKeyRing keyRing, TokenRevocationList revocationList, AuthMetrics authMetrics, AuditLog auditLog,
+			@Value("${com.secapp.jwt.claims-cache.max-size:10000}") int claimsCacheSize) {
+		this.keyRing = keyRing;
+		this.revocationList = revocationList;
+		this.authMetrics = authMetrics;
+		this.auditLog = auditLog;
+		this.parser = Jwts.parser().keyLocator(keyRing).build();
+		this.claimsCache = new VerifiedClaimsCache(claimsCacheSize);
+	}
+	
+	public String generateToken(Map<String, ?> extraClaims, String userName, long expireInterval) {
+		JwtKeyRing.KeyEntry signingKey = keyRing.signingKey();
 		return Jwts
                 .builder()
+                .header().keyId(signingKey.getKid())
+                .and()
+                .id(UUID.randomUUID().toString()) // jti, to revoke token
                 .claims().add(extraClaims)
                 .and()
                 .subject(userName)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expireInterval))
-                .signWith(getSignInKey())
+                .signWith(signingKey.getSignKey())
                 .compact();
 	}
 	
+	/**
+	 * Generate token for user entity. User ID and Role are embedded as claims, so requests can be 
+	 * authenticated from token alone (stateless mode).
+	 */
+	public String generateToken(Map<String, String> extraClaims, Users user, long expireInterval) {
+		Map<String, Object> claims = new HashMap<>(extraClaims);
+		claims.put(CLAIM_USER_ID, user.getId());
+		if (user.getRole() != null)
+			claims.put(CLAIM_ROLE, user.getRole().name());
+		return generateToken(claims, user.getUserName(), expireInterval);
+	}
+	
 	public String getUserName(String token) {
-		Claims claims = extractAllClaims(token);
+		Claims claims = getVerifiedClaims(token);
 		return claims.getSubject();
 	}
 	
 	public boolean isTokenExpired(String token) {
-		Claims claims = extractAllClaims(token);
+		Claims claims = getVerifiedClaims(token);
 		return claims.getExpiration().before(new Date());
 	}
 	
+	/**
+	 * Verify token and return claims. Verified tokens are cached till expiry, repeated calls with 
+	 * the same token don't repeat signature verification. Revocation is checked on every call (memory only).
+	 * 
+	 * @throws RevokedTokenException token ID is revoked
+	 */
+	public Claims getVerifiedClaims(String token) {
+		Claims claims = claimsCache.get(token);
+		if (claims == null) {
+			claims = extractAllClaims(token);
+			claimsCache.put(token, claims);
+		} else if (authMetrics != null) {
+			authMetrics.recordClaimsCached();
+		}
+		if (revocationList.isRevoked(claims.getId()))
+			throw new RevokedTokenException(claims.getId());
+		return claims;
+	}
+	
+	/**
+	 * Verified claims of an access token. Refresh tokens are only accepted by {@link TokenService#refresh(String)}, 
+	 * session cookies by {@link com.secapp.config.CookieSecurityContextRepository}.
+	 * 
+	 * @throws MalformedJwtException refresh or session token
+	 */
+	public Claims getAccessClaims(String token) {
+		Claims claims = getVerifiedClaims(token);
+		if (claims.get(CLAIM_TOKEN_USE) != null)
+			throw new MalformedJwtException("Token can't be used for API access: " + claims.get(CLAIM_TOKEN_USE));
+		return claims;
+	}
+	
+	/**
+	 * Subject of an already verified (cached) token, null if token wasn't verified yet. No verification work.
+	 */
+	public String getCachedSubject(String token) {
+		Claims claims = claimsCache.get(token);
+		return claims != null ? claims.getSubject() : null;
+	}
+	
+	public boolean isRevoked(String tokenId) {
+		return revocationList.isRevoked(tokenId);
+	}
+	
+	/**
+	 * Revoke token (all nodes, within revocation sync interval). Tokens without ID (jti) can't be revoked.
+	 */
+	public void revokeToken(String token) {
+		Claims claims = getVerifiedClaims(token);
+		if (claims.getId() == null)
+			throw new IllegalArgumentException("Token has no ID (jti)");
+		revokeTokenId(claims.getId(), claims.getSubject(), claims.getExpiration().getTime());
+	}
+	
+	/**
+	 * Revoke token by its ID (jti), e.g. tokens issued to a user which the caller doesn't hold
+	 */
+	public void revokeTokenId(String tokenId, String userName, long expiresAtMillis) {
+		revocationList.revoke(tokenId, expiresAtMillis);
+		if (auditLog != null)
+			auditLog.record(AuditEvent.Type.TOKEN_REVOKED, userName, tokenId);
+	}
+	
 	private Claims extractAllClaims(String token) {
 		// Extract claims after signature verification 
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 	
-	private SecretKey getSignInKey() {
-		System.out.println("secrete: "+ SECRET_KEY);
-		byte[] keyBytes = SECRET_KEY.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-	
 	// Test Tokens
 //	public static void main(String[] args) {
 //		Map<String, String> metadata = new HashMap<String, String>();
@@ -96,7 +199,8 @@ public class JwtUtility {
 //		metadata.put("role", "ROLE_ADMIN");
 //		int validityInterval = 24 * 60 * 60 * 1000; // 1 day validity
 //		
-//		JwtUtility jwtUtility = new JwtUtility();
+//		JwtUtility jwtUtility = new JwtUtility(new JwtKeyRing("HS256", "Happy World 2024 - Key2024 - HMAC-SHA-256", "k1", "", Duration.ofDays(1), Duration.ZERO, "", Duration.ZERO), 
+//				new TokenRevocationList(new StaticListableBeanFactory().getBeanProvider(RevocationStore.class), 1000, 0.01), null, null, 0);
 //		String token = jwtUtility.generateToken(metadata, "adminUser", validityInterval);
 //		System.out.println("JWT Token: "+ token);
 //		
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Key;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Public keys of a remote issuer, fetched from its JWKS endpoint (com.secapp.jwt.jwks-uri).
+ * <p>
+ * Keys are cached, unknown "kid" triggers a re-fetch (issuer rotated key) but not more often than 
+ * com.secapp.jwt.jwks-refresh-min-interval, so tokens with bogus "kid" can't flood the issuer. 
+ * Only one fetch runs at a time (async HTTP), blocking callers wait for its result.
+ * <p>
+ * <b>Event loop:</b> Non-blocking threads (Netty, reactive mode) never wait, unknown "kid" is rejected while 
+ * the fetch is in flight. Client retries once the issuer keys are loaded.
+ */
+class RemoteJwks {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+	private final URI uri;
+	private final long minIntervalNanos;
+	private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+	
+	private volatile Map<String, Key> keys = Map.of();
+	private volatile long fetchedAt;
+	private volatile boolean fetched;
+	// Single flight fetch
+	private final AtomicReference<CompletableFuture<Void>> inFlight = new AtomicReference<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	RemoteJwks(String uri, Duration minInterval) {
+		this.uri = URI.create(uri);
+		this.minIntervalNanos = minInterval.toNanos();
+	}
+
+	Key find(String kid) {
+		Key key = keys.get(kid);
+		if (key != null)
+			return key;
+		
+		CompletableFuture<Void> fetch = fetch();
+		if (!fetch.isDone()) {
+			if (Schedulers.isInNonBlockingThread())
+				return null;
+			await(fetch);
+		}
+		return keys.get(kid);
+	}
+
+	// Periodic refresh (key ring schedule), drops keys removed by issuer
+	void refreshIfStale() {
+		await(fetch());
+	}
+
+	private CompletableFuture<Void> fetch() {
+		CompletableFuture<Void> current = inFlight.get();
+		if (current != null)
+			return current;
+		if (isFresh())
+			return DONE;
+		
+		CompletableFuture<Void> started = new CompletableFuture<>();
+		if (!inFlight.compareAndSet(null, started)) {
+			current = inFlight.get();
+			return current != null ? current : DONE;
+		}
+		if (isFresh()) {
+			// Fetched by another thread meanwhile
+			inFlight.set(null);
+			started.complete(null);
+			return DONE;
+		}
+		
+		fetchedAt = System.nanoTime();
+		fetched = true;
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(TIMEOUT).GET().build();
+		httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, e) -> {
+			try {
+				load(response, e);
+			} finally {
+				inFlight.set(null);
+				started.complete(null);
+			}
+		});
+		return started;
+	}
+
+	private boolean isFresh() {
+		return fetched && System.nanoTime() - fetchedAt < minIntervalNanos;
+	}
+
+	private void await(CompletableFuture<Void> fetch) {
+		try {
+			fetch.get(TIMEOUT.toMillis() * 2, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			logger.warn("JWKS fetch not completed: {} {}", uri, e.getMessage());
+		}
+	}
+
+	private void load(HttpResponse<String> response, Throwable failure) {
+		if (failure != null) {
+			// Keep previous keys
+			logger.error("JWKS fetch failed: {} {}", uri, failure.getMessage());
+			return;
+		}
+		if (response.statusCode() != 200) {
+			logger.error("JWKS fetch failed: {} {}", uri, response.statusCode());
+			return;
+		}
+		try {
+			JwkSet jwkSet = Jwks.setParser().build().parse(response.body());
+			Map<String, Key> loaded = new HashMap<>();
+			for (Jwk<?> jwk : jwkSet.getKeys()) {
+				if (jwk.getId() != null)
+					loaded.put(jwk.getId(), jwk.toKey());
+			}
+			keys = Map.copyOf(loaded);
+			logger.info("JWKS loaded: {} keys from {}", loaded.size(), uri);
+		} catch (RuntimeException e) {
+			logger.error("JWKS fetch failed: {} {}", uri, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.util.List;
+
+/**
+ * Shared store of revoked token IDs (jti), source of {@link TokenRevocationList} on every node.
+ * <p>
+ * Changes are read incrementally: each revocation gets an increasing sequence number, nodes poll 
+ * {@link #changesSince(long)} with the last sequence they applied. Default is {@link InMemoryRevocationStore} 
+ * (single node), register a bean backed by shared storage (DB table, Redis stream etc) for multiple nodes.
+ */
+public interface RevocationStore {
+
+	/**
+	 * Store revoked token ID. Entry can be dropped after token expiry.
+	 */
+	void revoke(String jti, long expiresAtMillis);
+
+	/**
+	 * Revocations with sequence greater than "sequence", in sequence order
+	 */
+	List<Revocation> changesSince(long sequence);
+
+	public static class Revocation {
+		final long sequence;
+		final String jti;
+		final long expiresAtMillis;
+
+		public Revocation(long sequence, String jti, long expiresAtMillis) {
+			this.sequence = sequence;
+			this.jti = jti;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+		public String getJti() {
+			return jti;
+		}
+		public long getExpiresAtMillis() {
+			return expiresAtMillis;
+		}
+	}
+}
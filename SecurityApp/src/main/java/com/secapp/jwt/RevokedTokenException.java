@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Token is valid but its ID (jti) is revoked
+ */
+public class RevokedTokenException extends JwtException {
+
+	private static final long serialVersionUID = 1L;
+
+	public RevokedTokenException(String jti) {
+		super("Token revoked: " + jti);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Revoked token IDs (jti) of this node.
+ * <p>
+ * <b>Check:</b> Bloom filter first, a miss (common case, no revocation) is answered with a few memory reads. 
+ * Bloom hits are confirmed with exact set (false positives). No network call on request path.
+ * <p>
+ * <b>Sync:</b> Revocations are written to {@link RevocationStore}, all nodes pull changes since their 
+ * last sequence every com.secapp.jwt.revocation.sync-ms. Revocation reaches other nodes within that interval.
+ * <p>
+ * Expired IDs (token can't be used anyway) are dropped, Bloom filter is rebuilt then.
+ */
+@Component
+public class TokenRevocationList {
+
+	private final RevocationStore store;
+	private final int expectedRevocations;
+	private final double falsePositiveRate;
+	
+	private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+	private volatile BloomFilter bloomFilter;
+	private long syncedSequence;
+	private final ReentrantLock syncLock = new ReentrantLock();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public TokenRevocationList(ObjectProvider<RevocationStore> store,
+			@Value("${com.secapp.jwt.revocation.expected-size:100000}") int expectedRevocations,
+			@Value("${com.secapp.jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+		this.store = store.getIfAvailable(InMemoryRevocationStore::new);
+		this.expectedRevocations = expectedRevocations;
+		this.falsePositiveRate = falsePositiveRate;
+		this.bloomFilter = new BloomFilter(expectedRevocations, falsePositiveRate);
+		sync();
+	}
+
+	public boolean isRevoked(String jti) {
+		if (jti == null || !bloomFilter.mightContain(jti))
+			return false;
+		return revoked.containsKey(jti);
+	}
+
+	/**
+	 * Revoke token ID till its expiry, effective on this node immediately
+	 */
+	public void revoke(String jti, long expiresAtMillis) {
+		store.revoke(jti, expiresAtMillis);
+		add(jti, expiresAtMillis);
+		logger.info("Token revoked: {}", jti);
+	}
+
+	@Scheduled(fixedDelayString = "${com.secapp.jwt.revocation.sync-ms:5000}", initialDelayString = "${com.secapp.jwt.revocation.sync-ms:5000}")
+	public void sync() {
+		syncLock.lock();
+		try {
+			for (RevocationStore.Revocation revocation : store.changesSince(syncedSequence)) {
+				add(revocation.getJti(), revocation.getExpiresAtMillis());
+				syncedSequence = revocation.getSequence();
+			}
+			prune();
+		} catch (RuntimeException e) {
+			// Keep current list, retry on next sync
+			logger.error("Failed to sync revoked tokens: {}", e.getMessage());
+		} finally {
+			syncLock.unlock();
+		}
+	}
+
+	private void add(String jti, long expiresAtMillis) {
+		// Exact set first, Bloom hit always finds the entry
+		revoked.put(jti, expiresAtMillis);
+		bloomFilter.put(jti);
+	}
+
+	// Drop expired IDs and rebuild Bloom filter (bits can't be removed)
+	private void prune() {
+		long now = System.currentTimeMillis();
+		if (!revoked.values().removeIf(expiresAt -> expiresAt <= now))
+			return;
+		
+		BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), falsePositiveRate);
+		revoked.keySet().forEach(rebuilt::put);
+		bloomFilter = rebuilt;
+		// Revoked while rebuilding
+		revoked.keySet().forEach(rebuilt::put);
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.secapp.audit.AuditEvent;
+import com.secapp.audit.AuditLog;
+import com.secapp.config.LoginUtilityService;
+import com.secapp.config.Users;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.MalformedJwtException;
+
+/**
+ * Access and refresh token issuance.
+ * <p>
+ * <b>Reuse:</b> Current token pair of each user is kept and handed out again till the access token is within 
+ * com.secapp.jwt.token.renew-before of expiry (or revoked, or user's role changed). Signing work scales with 
+ * user sessions, not page views.
+ * <p>
+ * <b>Refresh:</b> Access tokens are short lived (com.secapp.jwt.token.access-validity), clients renew them with 
+ * the refresh token (com.secapp.jwt.token.refresh-validity) at "/api/open/token" without form login. 
+ * Refresh tokens are rotated, used one is revoked. Logout ({@link #revoke(String)}) revokes both tokens of the pair.
+ */
+@Service
+public class TokenService {
+
+	// Entries examined per eviction when full (bounded work on request thread)
+	private static final int EVICTION_SCAN = 64;
+
+	private final JwtUtility jwtUtility;
+	private final LoginUtilityService loginUtilityService;
+	private final AuditLog auditLog;
+	private final long accessValidity;
+	private final long refreshValidity;
+	private final long renewBefore;
+	private final int maxSize;
+	
+	// Current tokens by user name
+	private final Map<String, IssuedTokens> issued = new ConcurrentHashMap<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public TokenService(JwtUtility jwtUtility, LoginUtilityService loginUtilityService, AuditLog auditLog,
+			@Value("${com.secapp.jwt.token.access-validity:15m}") Duration accessValidity,
+			@Value("${com.secapp.jwt.token.refresh-validity:7d}") Duration refreshValidity,
+			@Value("${com.secapp.jwt.token.renew-before:2m}") Duration renewBefore,
+			@Value("${com.secapp.jwt.token.cache.max-size:10000}") int maxSize) {
+		this.jwtUtility = jwtUtility;
+		this.loginUtilityService = loginUtilityService;
+		this.auditLog = auditLog;
+		this.accessValidity = accessValidity.toMillis();
+		this.refreshValidity = refreshValidity.toMillis();
+		this.renewBefore = renewBefore.toMillis();
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Current tokens of user, new pair is signed only if there is no reusable one.
+	 */
+	public IssuedTokens currentTokens(Users user) {
+		IssuedTokens tokens = issued.get(user.getUserName());
+		if (isReusable(tokens, user))
+			return tokens;
+		
+		if (!hasCapacity(user.getUserName()))
+			return issue(user);
+		// Single signing for concurrent requests of the same user
+		return issued.compute(user.getUserName(), (userName, current) -> isReusable(current, user) ? current : issue(user));
+	}
+
+	/**
+	 * New token pair for a refresh token. User is re-read (role change, removed user), refresh token is revoked.
+	 * 
+	 * @throws io.jsonwebtoken.JwtException invalid, expired, revoked or not a refresh token
+	 * @throws org.springframework.security.core.userdetails.UsernameNotFoundException user doesn't exist
+	 */
+	public IssuedTokens refresh(String refreshToken) {
+		Claims claims = jwtUtility.getVerifiedClaims(refreshToken);
+		if (!JwtUtility.TOKEN_USE_REFRESH.equals(claims.get(JwtUtility.CLAIM_TOKEN_USE, String.class)))
+			throw new MalformedJwtException("Not a refresh token");
+		
+		Users user = loginUtilityService.findMatch(claims.getSubject()).getUser();
+		if (!hasCapacity(user.getUserName())) {
+			jwtUtility.revokeToken(refreshToken);
+			return issue(user);
+		}
+		// Revocation under the user's entry: concurrent refreshes with the same token, only one succeeds (on this node)
+		return issued.compute(user.getUserName(), (userName, current) -> {
+			jwtUtility.revokeToken(refreshToken);
+			return issue(user);
+		});
+	}
+
+	/**
+	 * Logout: revoke current access and refresh token of the user (issued by this node) and drop them
+	 */
+	public void revoke(String userName) {
+		IssuedTokens tokens = issued.remove(userName);
+		if (tokens == null)
+			return;
+		jwtUtility.revokeTokenId(tokens.accessTokenId, userName, tokens.accessExpiresAt);
+		jwtUtility.revokeTokenId(tokens.refreshTokenId, userName, tokens.refreshExpiresAt);
+	}
+
+	@Scheduled(fixedDelayString = "${com.secapp.jwt.token.cache.sweep-ms:60000}")
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		int size = issued.size();
+		// Kept till refresh token expiry, logout must still find the refresh token after access token expired
+		issued.values().removeIf(tokens -> tokens.refreshExpiresAt <= now);
+		logger.debug("Issued tokens swept: {} -> {}", size, issued.size());
+	}
+
+	private IssuedTokens issue(Users user) {
+		long now = System.currentTimeMillis();
+		String accessToken = jwtUtility.generateToken(Collections.emptyMap(), user, accessValidity);
+		String refreshToken = jwtUtility.generateToken(
+				Collections.singletonMap(JwtUtility.CLAIM_TOKEN_USE, JwtUtility.TOKEN_USE_REFRESH), user, refreshValidity);
+		auditLog.record(AuditEvent.Type.TOKEN_ISSUED, user.getUserName());
+		
+		// Verified claims are cached, first API request with the new token skips verification
+		return new IssuedTokens(accessToken, jwtUtility.getVerifiedClaims(accessToken).getId(), now + accessValidity, 
+				refreshToken, jwtUtility.getVerifiedClaims(refreshToken).getId(), now + refreshValidity, user.getRole());
+	}
+
+	private boolean isReusable(IssuedTokens tokens, Users user) {
+		return tokens != null
+				&& tokens.accessExpiresAt - System.currentTimeMillis() > renewBefore
+				&& Objects.equals(tokens.role, user.getRole())
+				&& !jwtUtility.isRevoked(tokens.accessTokenId)
+				&& !jwtUtility.isRevoked(tokens.refreshTokenId);
+	}
+
+	private boolean hasCapacity(String userName) {
+		if (issued.size() < maxSize || issued.containsKey(userName))
+			return true;
+		// Full: drop fully expired entries among the first few, else issue without keeping (scheduled sweep catches up)
+		long now = System.currentTimeMillis();
+		int scanned = 0;
+		for (Iterator<IssuedTokens> it = issued.values().iterator(); it.hasNext() && scanned < EVICTION_SCAN; scanned++) {
+			if (it.next().refreshExpiresAt <= now)
+				it.remove();
+		}
+		return issued.size() < maxSize;
+	}
+
+	/**
+	 * Access token with its refresh token
+	 */
+	public static final class IssuedTokens {
+		private final String accessToken;
+		private final String accessTokenId;
+		private final long accessExpiresAt;
+		private final String refreshToken;
+		private final String refreshTokenId;
+		private final long refreshExpiresAt;
+		private final Users.Role role;
+
+		IssuedTokens(String accessToken, String accessTokenId, long accessExpiresAt, String refreshToken, 
+				String refreshTokenId, long refreshExpiresAt, Users.Role role) {
+			this.accessToken = accessToken;
+			this.accessTokenId = accessTokenId;
+			this.accessExpiresAt = accessExpiresAt;
+			this.refreshToken = refreshToken;
+			this.refreshTokenId = refreshTokenId;
+			this.refreshExpiresAt = refreshExpiresAt;
+			this.role = role;
+		}
+
+		public String getAccessToken() {
+			return accessToken;
+		}
+
+		public String getRefreshToken() {
+			return refreshToken;
+		}
+
+		/**
+		 * Remaining access token validity in seconds
+		 */
+		public long getExpiresIn() {
+			return Math.max(0, (accessExpiresAt - System.currentTimeMillis()) / 1000);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Bounded cache of verified JWT claims. Key is SHA-256 digest of the token (raw token is not retained), 
+ * entry expires at token expiry (exp claim).
+ * <p>
+ * Only tokens which passed signature verification are stored, so a cache hit means the exact same 
+ * token was verified earlier. Repeat requests from the same client skip parsing and signature verification.
+ */
+public class VerifiedClaimsCache {
+
+	private final int maxSize;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	public VerifiedClaimsCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public Claims get(String token) {
+		if (maxSize <= 0)
+			return null;
+		String key = digest(token);
+		Entry entry = entries.get(key);
+		if (entry == null)
+			return null;
+		if (entry.expiresAt <= System.currentTimeMillis()) {
+			entries.remove(key, entry);
+			return null;
+		}
+		return entry.claims;
+	}
+
+	public void put(String token, Claims claims) {
+		if (maxSize <= 0 || claims.getExpiration() == null)
+			return;
+		if (entries.size() >= maxSize)
+			evict();
+		entries.put(digest(token), new Entry(claims, claims.getExpiration().getTime()));
+	}
+	
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	// Remove expired entries, if still full drop arbitrary entries (~10%) to make room
+	private void evict() {
+		long now = System.currentTimeMillis();
+		entries.values().removeIf(e -> e.expiresAt <= now);
+
+		int excess = entries.size() - (maxSize - maxSize / 10);
+		Iterator<String> it = entries.keySet().iterator();
+		while (excess-- > 0 && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	private static String digest(String token) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class Entry {
+		final Claims claims;
+		final long expiresAt;
+
+		Entry(Claims claims, long expiresAt) {
+			this.claims = claims;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
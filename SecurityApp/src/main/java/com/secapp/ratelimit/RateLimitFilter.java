@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.ratelimit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.secapp.jwt.JwtUtility;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Rate limiting ahead of authentication (first filter of API and form chains). Requests over a limit get 
+ * 429 (Retry-After) without session, token verification or DB lookup.
+ * <p>
+ * <b>Rules:</b> com.secapp.rate-limit.rules, comma separated {@link RateLimitRule}s. All matching rules apply.
+ * <p>
+ * <b>JWT subject:</b> Taken from verified claims cache only (no verification work here). Token not verified yet 
+ * (first request, forged) is keyed by ip, so a forged subject can't use up another user's limit or create keys.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private final JwtUtility jwtUtility;
+	private final boolean enabled;
+	private final List<RateLimitRule> rules = new ArrayList<>();
+	private final List<Counter> rejected = new ArrayList<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public RateLimitFilter(JwtUtility jwtUtility, @Value("${com.secapp.rate-limit.enabled:true}") boolean enabled,
+			@Value("${com.secapp.rate-limit.rules:}") String rules,
+			@Value("${com.secapp.rate-limit.max-keys:100000}") int maxKeys,
+			MeterRegistry meterRegistry) {
+		this.jwtUtility = jwtUtility;
+		this.enabled = enabled;
+		for (String spec : rules.split(",")) {
+			if (spec.isBlank())
+				continue;
+			RateLimitRule rule = RateLimitRule.parse(spec.trim(), maxKeys);
+			this.rules.add(rule);
+			this.rejected.add(Counter.builder("secapp.ratelimit.rejected")
+					.tag("path", rule.getPattern())
+					.tag("key", rule.getKey().name().toLowerCase())
+					.register(meterRegistry));
+		}
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		long retryAfter = enabled ? check(request) : 0;
+		if (retryAfter > 0) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfter + 999) / 1000));
+			response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+			return;
+		}
+		
+		filterChain.doFilter(request, response);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return rules.isEmpty();
+	}
+
+	@Scheduled(fixedDelayString = "${com.secapp.rate-limit.sweep-ms:60000}")
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		for (RateLimitRule rule : rules)
+			rule.getLimiter().sweep(now);
+	}
+
+	private long check(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		long now = System.currentTimeMillis();
+		long retryAfter = 0;
+		for (int i = 0; i < rules.size(); i++) {
+			RateLimitRule rule = rules.get(i);
+			if (!rule.matches(request.getMethod(), path))
+				continue;
+			
+			String key = key(rule.getKey(), request);
+			if (key == null)
+				continue;
+			long wait = rule.getLimiter().tryAcquire(key, now);
+			if (wait > 0) {
+				logger.debug("Rate limit exceeded: {} {} ({})", rule.getPattern(), rule.getKey(), key);
+				rejected.get(i).increment();
+				retryAfter = Math.max(retryAfter, wait);
+			}
+		}
+		return retryAfter;
+	}
+
+	private String key(RateLimitRule.Key key, HttpServletRequest request) {
+		switch (key) {
+		case USERNAME:
+			return request.getParameter("username");
+		case SUBJECT:
+			String subject = subject(request.getHeader(HttpHeaders.AUTHORIZATION));
+			return subject != null ? subject : request.getRemoteAddr();
+		default:
+			return request.getRemoteAddr();
+		}
+	}
+
+	private String subject(String authHeader) {
+		if (authHeader == null || !authHeader.startsWith("Bearer "))
+			return null;
+		return jwtUtility.getCachedSubject(authHeader.substring(7));
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.ratelimit;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Rate limit of a path, format: "[METHOD ]PATH-PATTERN=LIMIT/WINDOW:KEY", e.g. "POST /login=5/1m:username".
+ * <p>
+ * <b>KEY:</b> ip (remote address), username (form login parameter) or subject (verified JWT subject, ip if no token 
+ * or not verified yet).
+ */
+public class RateLimitRule {
+
+	public enum Key {
+		IP, USERNAME, SUBJECT
+	}
+
+	private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+	private final String method;
+	private final String pattern;
+	private final Key key;
+	private final SlidingWindowRateLimiter limiter;
+
+	RateLimitRule(String method, String pattern, Key key, SlidingWindowRateLimiter limiter) {
+		this.method = method;
+		this.pattern = pattern;
+		this.key = key;
+		this.limiter = limiter;
+	}
+
+	public static RateLimitRule parse(String spec, int maxKeys) {
+		try {
+			int equals = spec.lastIndexOf('=');
+			int slash = spec.indexOf('/', equals);
+			int colon = spec.indexOf(':', slash);
+			
+			String target = spec.substring(0, equals).trim();
+			int space = target.indexOf(' ');
+			String method = space > 0 ? target.substring(0, space).toUpperCase() : null;
+			String pattern = target.substring(space + 1).trim();
+			
+			int limit = Integer.parseInt(spec.substring(equals + 1, slash).trim());
+			long window = DurationStyle.detectAndParse(spec.substring(slash + 1, colon).trim()).toMillis();
+			Key key = Key.valueOf(spec.substring(colon + 1).trim().toUpperCase());
+			return new RateLimitRule(method, pattern, key, new SlidingWindowRateLimiter(limit, window, maxKeys));
+			
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid rate limit rule: " + spec, e);
+		}
+	}
+
+	public boolean matches(String method, String path) {
+		return (this.method == null || this.method.equals(method)) && PATH_MATCHER.match(pattern, path);
+	}
+
+	public Key getKey() {
+		return key;
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public SlidingWindowRateLimiter getLimiter() {
+		return limiter;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-key sliding window counter: count of current fixed window plus previous window's count weighted by 
+ * its overlap with the sliding window. Two counters per key, no timestamp log.
+ * <p>
+ * <b>Concurrency:</b> Counters are guarded by striped locks (key hash), short critical section, no I/O.
+ * <p>
+ * <b>Memory:</b> At most max-keys windows. When full, least recently used window of a small sample is evicted 
+ * (its count is lost), every key keeps its own window, no key shares a limit with others. Idle windows are 
+ * removed by {@link #sweep(long)}.
+ */
+public class SlidingWindowRateLimiter {
+
+	private static final int STRIPES = 64;
+	// Windows examined per eviction when full
+	private static final int EVICTION_SAMPLE = 16;
+
+	private final int limit;
+	private final long windowMillis;
+	private final int maxKeys;
+	
+	private final Map<String, Window> windows = new ConcurrentHashMap<>();
+	private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+	public SlidingWindowRateLimiter(int limit, long windowMillis, int maxKeys) {
+		if (limit <= 0 || windowMillis <= 0)
+			throw new IllegalArgumentException("Limit and window must be positive");
+		this.limit = limit;
+		this.windowMillis = windowMillis;
+		this.maxKeys = maxKeys;
+		for (int i = 0; i < STRIPES; i++)
+			locks[i] = new ReentrantLock();
+	}
+
+	/**
+	 * Count request of key if it's within limit.
+	 * 
+	 * @return 0 if permitted, else milliseconds till the current window ends (retry hint)
+	 */
+	public long tryAcquire(String key, long now) {
+		Window window = windows.get(key);
+		if (window == null) {
+			if (windows.size() >= maxKeys)
+				evictOne();
+			window = windows.computeIfAbsent(key, k -> new Window());
+		}
+		
+		ReentrantLock lock = locks[stripe(key)];
+		lock.lock();
+		try {
+			return window.tryAcquire(now);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove windows without requests in the last two windows (their counts no longer apply)
+	 */
+	public void sweep(long now) {
+		long index = now / windowMillis;
+		windows.entrySet().removeIf(entry -> {
+			ReentrantLock lock = locks[stripe(entry.getKey())];
+			lock.lock();
+			try {
+				return index - entry.getValue().index >= 2;
+			} finally {
+				lock.unlock();
+			}
+		});
+	}
+
+	// Bounded work: least recently used of the first few windows
+	private void evictOne() {
+		String victim = null;
+		long oldest = Long.MAX_VALUE;
+		int sampled = 0;
+		for (Map.Entry<String, Window> entry : windows.entrySet()) {
+			long index = entry.getValue().index; // Unlocked read, only picks the victim
+			if (index < oldest) {
+				oldest = index;
+				victim = entry.getKey();
+			}
+			if (++sampled >= EVICTION_SAMPLE)
+				break;
+		}
+		if (victim != null)
+			windows.remove(victim);
+	}
+
+	public int size() {
+		return windows.size();
+	}
+
+	private static int stripe(String key) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (STRIPES - 1);
+	}
+
+	private final class Window {
+		private long index;
+		private int previous;
+		private int current;
+
+		long tryAcquire(long now) {
+			long index = now / windowMillis;
+			if (index != this.index) {
+				previous = index == this.index + 1 ? current : 0;
+				current = 0;
+				this.index = index;
+			}
+			long elapsed = now - index * windowMillis;
+			double count = previous * (double) (windowMillis - elapsed) / windowMillis + current;
+			if (count < limit) {
+				current++;
+				return 0;
+			}
+			return windowMillis - elapsed;
+		}
+	}
+}
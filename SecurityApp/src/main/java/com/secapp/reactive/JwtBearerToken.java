@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.reactive;
+
+import java.util.List;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+
+/**
+ * Unverified Bearer token, input of {@link ReactiveJwtAuthenticationManager}
+ */
+public class JwtBearerToken extends AbstractAuthenticationToken {
+
+	private static final long serialVersionUID = 1L;
+	private final String token;
+
+	public JwtBearerToken(String token) {
+		super(List.of());
+		this.token = token;
+		setAuthenticated(false);
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	@Override
+	public Object getCredentials() {
+		return token;
+	}
+
+	@Override
+	public Object getPrincipal() {
+		return null;
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.reactive;
+
+import com.secapp.config.UserDetailsCache;
+import com.secapp.config.Users;
+import com.secapp.config.UsersRepository;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link ReactiveUsersLookup} over JPA. Cached users are returned on the calling thread (memory only), 
+ * DB lookups run on bounded elastic scheduler, event loop threads never block on JDBC.
+ */
+public class OffloadedUsersLookup implements ReactiveUsersLookup {
+
+	private final UsersRepository usersRepository;
+	private final UserDetailsCache userDetailsCache;
+	private final Scheduler scheduler = Schedulers.boundedElastic();
+
+	public OffloadedUsersLookup(UsersRepository usersRepository, UserDetailsCache userDetailsCache) {
+		this.usersRepository = usersRepository;
+		this.userDetailsCache = userDetailsCache;
+	}
+
+	@Override
+	public Mono<Users> findByUserName(String userName) {
+		Users cached = userDetailsCache.getIfPresent(userName);
+		if (cached != null)
+			return Mono.just(cached);
+		
+		return Mono.fromCallable(() -> userDetailsCache.get(userName, name -> usersRepository.findByNaturalId(name).orElse(null)))
+				.subscribeOn(scheduler);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.reactive;
+
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import com.secapp.audit.AuditEvent;
+import com.secapp.audit.AuditLog;
+import com.secapp.config.AccessTracker;
+import com.secapp.config.AuthenticatedUser;
+import com.secapp.config.LoginUtilityService;
+import com.secapp.config.Users;
+import com.secapp.jwt.AuthMetrics;
+import com.secapp.jwt.JwtUtility;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link com.secapp.jwt.JwtFilter}. 
+ * <p>
+ * Token is verified with {@link JwtUtility} (CPU only, verified claims cached; an unknown issuer key is fetched 
+ * asynchronously, the token is rejected meanwhile instead of blocking the event loop). Stateless mode builds the 
+ * user from claims, otherwise user is resolved through {@link ReactiveUsersLookup}.
+ */
+public class ReactiveJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+	private final JwtUtility jwtUtility;
+	private final LoginUtilityService loginUtilityService;
+	private final ReactiveUsersLookup usersLookup;
+	private final AccessTracker accessTracker;
+	private final AuthMetrics authMetrics;
+	private final AuditLog auditLog;
+	private final boolean stateless;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	public ReactiveJwtAuthenticationManager(JwtUtility jwtUtility, LoginUtilityService loginUtilityService,
+			ReactiveUsersLookup usersLookup, AccessTracker accessTracker, AuthMetrics authMetrics, AuditLog auditLog, boolean stateless) {
+		this.jwtUtility = jwtUtility;
+		this.loginUtilityService = loginUtilityService;
+		this.usersLookup = usersLookup;
+		this.accessTracker = accessTracker;
+		this.authMetrics = authMetrics;
+		this.auditLog = auditLog;
+		this.stateless = stateless;
+	}
+
+	@Override
+	public Mono<Authentication> authenticate(Authentication authentication) {
+		String token = ((JwtBearerToken) authentication).getToken();
+		
+		long verifyStart = System.nanoTime();
+		Claims claims;
+		try {
+			claims = jwtUtility.getAccessClaims(token);
+		} catch (JwtException e) {
+			logger.debug("Failed to process JWT Token: {}", e.getMessage());
+			authMetrics.recordFailure(e);
+			auditLog.record(AuditEvent.Type.TOKEN_REJECTED, null, AuthMetrics.outcomeOf(e));
+			return Mono.error(new BadCredentialsException("Invalid JWT Token", e));
+		}
+		long lookupStart = System.nanoTime();
+		authMetrics.recordStage(AuthMetrics.STAGE_VERIFY, lookupStart - verifyStart);
+		if (claims.getExpiration().before(new Date())) {
+			authMetrics.recordOutcome(AuthMetrics.EXPIRED);
+			return Mono.error(new CredentialsExpiredException("Token validity expired"));
+		}
+		
+		String userName = claims.getSubject();
+		if (userName == null) {
+			authMetrics.recordOutcome(AuthMetrics.MALFORMED);
+			return Mono.error(new BadCredentialsException("No username found in JWT Token"));
+		}
+		
+		accessTracker.record(userName);
+		return loadUser(userName, claims)
+				.switchIfEmpty(Mono.error(() -> new UsernameNotFoundException("UserName " + userName + " doesn't exists")))
+				.map(user -> {
+					authMetrics.recordStage(AuthMetrics.STAGE_LOOKUP, System.nanoTime() - lookupStart);
+					authMetrics.recordOutcome(AuthMetrics.AUTHENTICATED);
+					auditLog.record(AuditEvent.Type.TOKEN_AUTHENTICATED, userName);
+					return (Authentication) new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+				})
+				.doOnError(UsernameNotFoundException.class, authMetrics::recordFailure);
+	}
+
+	private Mono<AuthenticatedUser> loadUser(String userName, Claims claims) {
+		String role = claims.get(JwtUtility.CLAIM_ROLE, String.class);
+		if (stateless && role != null) {
+			Number userId = claims.get(JwtUtility.CLAIM_USER_ID, Number.class);
+			return Mono.just(loginUtilityService.fromClaims(userName, userId != null ? userId.longValue() : null, Users.Role.valueOf(role)));
+		}
+		return usersLookup.findByUserName(userName).map(loginUtilityService::toAuthenticatedUser);
+	}
+}
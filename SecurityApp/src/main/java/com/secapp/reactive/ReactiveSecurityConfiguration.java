@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.reactive;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+import com.secapp.audit.AuditLog;
+import com.secapp.config.AccessTracker;
+import com.secapp.config.LoginUtilityService;
+import com.secapp.config.UserDetailsCache;
+import com.secapp.config.UsersRepository;
+import com.secapp.jwt.AuthMetrics;
+import com.secapp.jwt.JwtUtility;
+
+/**
+ * Reactive (WebFlux on Netty) security configuration, active with spring.main.web-application-type=reactive.
+ * Same rules as servlet {@link com.secapp.config.SecurityConfiguration} API chain: "/api/open/**" is open, 
+ * rest of "/api/**" requires JWT (403 otherwise). No blocking call runs on event loop threads.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveSecurityConfiguration {
+
+	@Bean
+	public SecurityWebFilterChain reactiveSecurityFilterChain(ServerHttpSecurity http, ReactiveJwtAuthenticationManager authenticationManager) {
+		AuthenticationWebFilter jwtWebFilter = new AuthenticationWebFilter(authenticationManager);
+		jwtWebFilter.setServerAuthenticationConverter(new JwtServerAuthenticationConverter());
+		jwtWebFilter.setAuthenticationFailureHandler(new ServerAuthenticationEntryPointFailureHandler(
+				new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)));
+		// Stateless, no session
+		jwtWebFilter.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+		
+		return http
+				.authorizeExchange(exchange -> {
+					exchange.pathMatchers("/api/open/**").permitAll();
+					exchange.pathMatchers("/api/**").authenticated();
+					exchange.pathMatchers("/", "/open", "/error", "/images/**", "/js/**").permitAll();
+					exchange.anyExchange().authenticated();
+				})
+				.securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+				.csrf(ServerHttpSecurity.CsrfSpec::disable) // Bearer token in header (not cookie), CSRF doesn't apply
+				.httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+				.formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+				.exceptionHandling(exception -> exception.authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+				.addFilterAt(jwtWebFilter, SecurityWebFiltersOrder.AUTHENTICATION) // Filter to process JWT
+				.build();
+	}
+
+	@Bean
+	public ReactiveJwtAuthenticationManager reactiveJwtAuthenticationManager(JwtUtility jwtUtility, 
+			LoginUtilityService loginUtilityService, ObjectProvider<ReactiveUsersLookup> usersLookup,
+			UsersRepository usersRepository, UserDetailsCache userDetailsCache, AccessTracker accessTracker,
+			AuthMetrics authMetrics, AuditLog auditLog, @Value("${com.secapp.jwt.stateless:false}") boolean stateless) {
+		return new ReactiveJwtAuthenticationManager(jwtUtility, loginUtilityService, 
+				usersLookup.getIfAvailable(() -> new OffloadedUsersLookup(usersRepository, userDetailsCache)), 
+				accessTracker, authMetrics, auditLog, stateless);
+	}
+
+	// Netty (Tomcat is also on classpath for servlet mode)
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.secapp.reactive;
+
+import com.secapp.config.Users;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking user lookup for reactive authentication. Default is {@link OffloadedUsersLookup}, 
+ * register a bean (e.g. R2DBC repository) to replace it.
+ */
+public interface ReactiveUsersLookup {
+
+	/**
+	 * User by user name, empty if not found
+	 */
+	Mono<Users> findByUserName(String userName);
+}
@@ -0,0 +1,9 @@
+-- Users table (existing schemas: no-op)
+CREATE TABLE IF NOT EXISTS users (
+	id BIGINT NOT NULL AUTO_INCREMENT,
+	user_name VARCHAR(255),
+	password VARCHAR(255),
+	role TINYINT,
+	access_time DATETIME(6),
+	PRIMARY KEY (id)
+);
@@ -0,0 +1,2 @@
+-- Auth lookups by user name: unique index (fails if duplicate user names exist, clean up first)
+CREATE UNIQUE INDEX ux_users_user_name ON users (user_name);
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2024 Prasanta Paul, https://prasanta-paul.blogspot.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup time and memory (RSS) of application variants (plain jar, AOT, AOT + CDS, native image). 
+ * Run by the -Pcds build as a single-file program, JDK only.
+ * <p>
+ * Usage: java -Dstartup.args="APP-ARGS" StartupComparison.java REPORT-FILE RUNS NAME=COMMAND [NAME=COMMAND ...]
+ * <p>
+ * Each variant is started RUNS times (APP-ARGS appended) and stopped after Spring Boot's "Started ... in" log line. 
+ * Startup is measured from process launch till that line, RSS is read then (/proc, else ps). Medians are reported. 
+ * Variants with a missing executable or jar are skipped (e.g. native image not built).
+ */
+public class StartupComparison {
+
+	private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+	private static final long TIMEOUT_SECONDS = 180;
+
+	public static void main(String[] args) throws Exception {
+		Path report = Path.of(args[0]);
+		int runs = Integer.parseInt(args[1]);
+		List<String> appArgs = split(System.getProperty("startup.args", ""));
+		
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format("%-10s %12s %12s %10s", "variant", "startup-ms", "spring-ms", "rss-mb"));
+		for (int i = 2; i < args.length; i++) {
+			int index = args[i].indexOf('=');
+			String name = args[i].substring(0, index);
+			List<String> command = split(args[i].substring(index + 1));
+			String missing = missingFile(command);
+			if (missing != null) {
+				lines.add(String.format("%-10s skipped (%s not found)", name, missing));
+				continue;
+			}
+			command.addAll(appArgs);
+			
+			long[] startup = new long[runs];
+			long[] spring = new long[runs];
+			long[] rss = new long[runs];
+			try {
+				for (int run = 0; run < runs; run++) {
+					long[] sample = sample(command);
+					startup[run] = sample[0];
+					spring[run] = sample[1];
+					rss[run] = sample[2];
+				}
+				lines.add(String.format("%-10s %12d %12d %10.1f", name, median(startup), median(spring), median(rss) / 1024.0));
+			} catch (IOException e) {
+				lines.add(String.format("%-10s failed: %s", name, e.getMessage()));
+			}
+		}
+		
+		Files.write(report, lines, StandardCharsets.UTF_8);
+		lines.forEach(System.out::println);
+	}
+
+	/**
+	 * Start process till startup log line: [wall-clock ms, ms reported by Spring Boot, RSS KB]
+	 */
+	private static long[] sample(List<String> command) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		CompletableFuture<Double> started = new CompletableFuture<>();
+		Deque<String> tail = new ArrayDeque<>();
+		
+		// Reads output till exit (process mustn't block on a full pipe)
+		Thread reader = new Thread(() -> {
+			try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = in.readLine()) != null) {
+					Matcher matcher = STARTED.matcher(line);
+					if (matcher.find())
+						started.complete(Double.parseDouble(matcher.group(1)));
+					if (!started.isDone()) {
+						tail.addLast(line);
+						if (tail.size() > 20)
+							tail.removeFirst();
+					}
+				}
+			} catch (IOException e) {
+				// Process stopped
+			}
+			started.completeExceptionally(new IOException("exited before startup: " + String.join(" | ", tail)));
+		});
+		reader.setDaemon(true);
+		reader.start();
+		
+		try {
+			double springSeconds = started.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			return new long[] { startupMillis, Math.round(springSeconds * 1000), rssKb(process.pid()) };
+		} catch (ExecutionException e) {
+			throw (IOException) e.getCause();
+		} catch (TimeoutException e) {
+			throw new IOException("no startup within " + TIMEOUT_SECONDS + "s");
+		} finally {
+			process.destroy();
+			if (!process.waitFor(10, TimeUnit.SECONDS))
+				process.destroyForcibly().waitFor();
+		}
+	}
+
+	private static long rssKb(long pid) throws IOException, InterruptedException {
+		Path status = Path.of("/proc", String.valueOf(pid), "status");
+		if (Files.exists(status)) {
+			for (String line : Files.readAllLines(status))
+				if (line.startsWith("VmRSS:"))
+					return Long.parseLong(line.replaceAll("\\D", ""));
+		}
+		Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", String.valueOf(pid)).start();
+		String out = new String(ps.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+		ps.waitFor();
+		return out.isEmpty() ? 0 : Long.parseLong(out);
+	}
+
+	// Executable given by path, or jar of "-jar"
+	private static String missingFile(List<String> command) {
+		String executable = command.get(0);
+		if (executable.contains("/") && !Files.isExecutable(Path.of(executable)))
+			return executable;
+		int jar = command.indexOf("-jar");
+		if (jar >= 0 && jar + 1 < command.size() && !Files.exists(Path.of(command.get(jar + 1))))
+			return command.get(jar + 1);
+		return null;
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	private static List<String> split(String value) {
+		List<String> parts = new ArrayList<>();
+		for (String part : value.trim().split("\\s+"))
+			if (!part.isEmpty())
+				parts.add(part);
+		return parts;
+	}
+}